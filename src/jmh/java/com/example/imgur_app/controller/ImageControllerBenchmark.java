@@ -0,0 +1,160 @@
+package com.example.imgur_app.controller;
+
+import com.example.imgur_app.ImgurAppApplication;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.User;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.security.AuthenticatedUser;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+// Whole request handling for the image endpoints: the servlet filters (security, request timing),
+// argument binding, the controller, JPA against an in-memory H2 and response writing. Imgur is
+// replaced by a stub that answers immediately, so the score is the application's own overhead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dspring.devtools.restart.enabled=false"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ImageControllerBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private AuthenticatedUser principal;
+    private byte[] png;
+    private long imageId;
+    private final AtomicLong uploads = new AtomicLong();
+
+    @Setup
+    public void setUp() throws Exception {
+        String dataDir = Files.createTempDirectory("imgur-benchmark-").toString();
+        context = new SpringApplicationBuilder(ImgurAppApplication.class)
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext).registerBean(
+                        "stubImgurClient", ImgurClient.class, StubImgurClient::new,
+                        definition -> definition.setPrimary(true)))
+                // Command line arguments, so they take precedence over application.properties
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--imgur.upload.jobs.spool-dir=" + dataDir + "/spool",
+                        "--imgur.content-cache.dir=" + dataDir + "/content-cache",
+                        "--logging.level.root=WARN");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        User user = new User();
+        user.setUsername("benchmark");
+        user.setPassword("unused");
+        user.setEmail("benchmark@example.com");
+        user = context.getBean(UserRepository.class).save(user);
+        principal = new AuthenticatedUser(user.getId(), user.getUsername(), null);
+
+        // A page worth of images for the list and view endpoints
+        ImageRepository imageRepository = context.getBean(ImageRepository.class);
+        for (int i = 0; i < 50; i++) {
+            Image image = new Image();
+            image.setDeleteHash("seed-" + i);
+            image.setLink("https://i.imgur.com/seed" + i + ".png");
+            image.setUser(user);
+            imageId = imageRepository.save(image).getId();
+        }
+
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        png = out.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult upload() throws Exception {
+        // Bytes after the PNG end chunk make every upload unique without changing the image,
+        // so each one goes through to the stub instead of being answered as a duplicate
+        byte[] content = Arrays.copyOf(png, png.length + Long.BYTES);
+        ByteBuffer.wrap(content, png.length, Long.BYTES).putLong(uploads.incrementAndGet());
+        return mockMvc.perform(multipart("/api/images/upload")
+                        .file(new MockMultipartFile("image", "benchmark.png", "image/png", content))
+                        .with(SecurityMockMvcRequestPostProcessors.user(principal)))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult uploadDuplicate() throws Exception {
+        return mockMvc.perform(multipart("/api/images/upload")
+                        .file(new MockMultipartFile("image", "benchmark.png", "image/png", png))
+                        .with(SecurityMockMvcRequestPostProcessors.user(principal)))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult list() throws Exception {
+        return mockMvc.perform(get("/api/images").param("limit", "50")
+                        .with(SecurityMockMvcRequestPostProcessors.user(principal)))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult view() throws Exception {
+        return mockMvc.perform(get("/api/images/{id}", imageId)
+                        .with(SecurityMockMvcRequestPostProcessors.user(principal)))
+                .andReturn();
+    }
+
+    // Reads the whole body like the real client does, then answers without any network call
+    static class StubImgurClient extends ImgurClient {
+
+        private final AtomicLong ids = new AtomicLong();
+
+        StubImgurClient() {
+            super(new OkHttpClient(), new ObjectMapper(), null, null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public ImageMetadata uploadImage(InputStream imageStream, long contentLength) throws Exception {
+            imageStream.transferTo(OutputStream.nullOutputStream());
+            String id = "stub" + ids.incrementAndGet();
+            return new ImageMetadata(id, id + "-delete", "https://i.imgur.com/" + id + ".png", "stub");
+        }
+
+        @Override
+        public String deleteImage(String deleteHash, String clientId, ImgurRateLimiter.Priority priority) throws Exception {
+            return "{\"success\":true}";
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.imgur_app.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Single-threaded throughput, i.e. authenticated requests per core, with and without the credential cache
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthenticationBenchmark {
+
+    private AuthenticationProvider bcryptProvider;
+    private AuthenticationProvider cachingProvider;
+    private Authentication request;
+
+    @Setup
+    public void setUp() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        UserDetails user = User.withUsername("benchmark")
+                .password(passwordEncoder.encode("password123"))
+                .build();
+
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(new InMemoryUserDetailsManager(user));
+        daoProvider.setPasswordEncoder(passwordEncoder);
+
+        bcryptProvider = daoProvider;
+        cachingProvider = new CachingAuthenticationProvider(daoProvider, new CredentialCache(Duration.ofMinutes(5), 1000));
+        request = UsernamePasswordAuthenticationToken.unauthenticated("benchmark", "password123");
+    }
+
+    @Benchmark
+    public Authentication bcryptOnEveryRequest() {
+        return bcryptProvider.authenticate(request);
+    }
+
+    @Benchmark
+    public Authentication cachedCredentials() {
+        return cachingProvider.authenticate(request);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.imgur_app.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Images processed per second on one core; the pool runs one such thread per core.
+// The large case takes the downscale/re-encode path, the small case only strips metadata.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImageProcessorBenchmark {
+
+    @Param({"6000x4000", "1600x1200"})
+    public String dimensions;
+
+    private ImageProcessor imageProcessor;
+    private ByteArrayResource jpeg;
+    private long size;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Run on the calling thread so the score is per core rather than per pool
+        imageProcessor = new ImageProcessor(true, 2048, 0.85f, Runnable::run);
+
+        String[] parts = dimensions.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        // A gradient with noise compresses roughly like a photo, unlike a flat colour
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                int b = ((x + y) * 255 / (width + height) + random.nextInt(32)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        jpeg = new ByteArrayResource(out.toByteArray());
+        size = out.size();
+    }
+
+    @Benchmark
+    public long process() throws Exception {
+        try (ImageProcessor.ProcessedImage processed = imageProcessor.process(jpeg, size)) {
+            return processed.getSize();
+        }
+    }
+}
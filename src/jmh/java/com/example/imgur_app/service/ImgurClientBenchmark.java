@@ -0,0 +1,92 @@
+package com.example.imgur_app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-call cost of the client's own work around an Imgur request: binding the upload response
+// and building and writing the multipart body, which is written to a sink that discards it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImgurClientBenchmark {
+
+    // A full upload response as Imgur sends it; only id, deletehash and link are bound
+    private static final byte[] UPLOAD_RESPONSE = ("{\"data\":{\"id\":\"orunSTu\",\"title\":null,\"description\":null,"
+            + "\"datetime\":1495556889,\"type\":\"image/jpeg\",\"animated\":false,\"width\":1600,\"height\":1200,"
+            + "\"size\":412345,\"views\":0,\"bandwidth\":0,\"vote\":null,\"favorite\":false,\"nsfw\":null,"
+            + "\"section\":null,\"account_url\":null,\"account_id\":0,\"is_ad\":false,\"in_most_viral\":false,"
+            + "\"has_sound\":false,\"tags\":[],\"ad_type\":0,\"ad_url\":\"\",\"edited\":\"0\",\"in_gallery\":false,"
+            + "\"deletehash\":\"x70po4w7BVvSUzZ\",\"name\":\"\",\"link\":\"https://i.imgur.com/orunSTu.jpg\"},"
+            + "\"success\":true,\"status\":200}").getBytes(StandardCharsets.UTF_8);
+
+    // Payload sizes in bytes: a thumbnail, a typical phone photo after processing, a large original
+    @Param({"16384", "1048576", "8388608"})
+    public int payloadSize;
+
+    private ImgurClient imgurClient;
+    private byte[] payload;
+    private Path payloadFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        imgurClient = new ImgurClient(new OkHttpClient(), new ObjectMapper(), null, null, new SimpleMeterRegistry());
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+        payloadFile = Files.createTempFile("imgur-benchmark-", ".bin");
+        Files.write(payloadFile, payload);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(payloadFile);
+    }
+
+    @Benchmark
+    public ImgurClient.ImageMetadata parseUploadResponse() throws Exception {
+        return imgurClient.parseUploadResponse(new ByteArrayInputStream(UPLOAD_RESPONSE));
+    }
+
+    @Benchmark
+    public long multipartFromFile() throws IOException {
+        return writeMultipart(StreamingRequestBody.ofPath(payloadFile, payloadSize));
+    }
+
+    @Benchmark
+    public long multipartFromStream() throws IOException {
+        return writeMultipart(StreamingRequestBody.ofStream(new ByteArrayInputStream(payload), payloadSize));
+    }
+
+    @Benchmark
+    public long multipartFromBytes() throws IOException {
+        return writeMultipart(RequestBody.create(payload));
+    }
+
+    private static long writeMultipart(RequestBody imageBody) throws IOException {
+        RequestBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("image", null, imageBody)
+                .build();
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+        }
+        return body.contentLength();
+    }
+}
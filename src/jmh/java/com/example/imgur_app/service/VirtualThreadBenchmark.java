@@ -0,0 +1,157 @@
+package com.example.imgur_app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A burst of blocking ImgurClient uploads against a local stand-in that answers after 200ms, run on
+// Tomcat's default pool of 200 platform threads and on one virtual thread per request. The score is
+// the time to drain the burst; peakInFlight is the concurrency reached and rssKbPerInFlight the
+// resident memory per concurrent request at the peak. Needs Java 21 for the virtual case.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class VirtualThreadBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final long IMGUR_LATENCY_MS = 200;
+    private static final byte[] UPLOAD_RESPONSE = ("{\"data\":{\"id\":\"abc\",\"deletehash\":\"del\","
+            + "\"link\":\"https://i.imgur.com/abc.png\"},\"success\":true}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000", "10000"})
+    public int requests;
+
+    private HttpServer imgur;
+    private ExecutorService imgurExecutor;
+    private ImgurClient imgurClient;
+    private ExecutorService executor;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long peakInFlight;
+        public long rssKbPerInFlight;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        // The stand-in always runs on virtual threads so it never limits the side being measured
+        imgurExecutor = newVirtualThreadPerTaskExecutor();
+        imgur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), requests);
+        imgur.setExecutor(imgurExecutor);
+        imgur.createContext("/3/image", exchange -> {
+            try {
+                Thread.sleep(IMGUR_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, UPLOAD_RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(UPLOAD_RESPONSE);
+            }
+        });
+        imgur.start();
+
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(requests, 5, TimeUnit.MINUTES))
+                .readTimeout(Duration.ofMinutes(1))
+                .build();
+        // No bulkhead limit: the thread model under test is the only cap on concurrency
+        ImgurResilience resilience = new ImgurResilience(CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+                BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(Integer.MAX_VALUE).build()));
+        ImgurCredentialPool credentialPool = new ImgurCredentialPool(List.of("benchmark"), 1_000_000, 1_000_000, 0,
+                Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(1));
+        imgurClient = new ImgurClient(httpClient, new ObjectMapper(), resilience, credentialPool, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(imgurClient, "baseUrl", "http://127.0.0.1:" + imgur.getAddress().getPort() + "/3");
+
+        executor = "virtual".equals(threads) ? newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        imgur.stop(0);
+        imgurExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long burst(Footprint footprint) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(requests);
+        long rssBefore = residentKb();
+        long rssPeak = rssBefore;
+
+        byte[] payload = new byte[1024];
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    imgurClient.uploadImage(payload);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        // Sample resident memory while the burst is in flight
+        while (!done.await(10, TimeUnit.MILLISECONDS)) {
+            rssPeak = Math.max(rssPeak, residentKb());
+        }
+
+        footprint.peakInFlight = peak.get();
+        footprint.rssKbPerInFlight = (rssPeak - rssBefore) / Math.max(1, peak.get());
+        return failures.get();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is Java 21 API; the build targets 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    // VmRSS from /proc, so platform thread stacks are counted along with the heap (Linux only)
+    private static long residentKb() throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.imgur_app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    // Bounded pool for background upload jobs; when the queue is full jobs simply stay QUEUED in the database
+    @Bean
+    public ThreadPoolTaskExecutor uploadJobExecutor(@Value("${imgur.upload.jobs.workers}") int workers,
+                                                    @Value("${imgur.upload.jobs.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    // Shared by batch requests, so the pool size is the global cap on concurrent batch calls to Imgur.
+    // In virtual thread mode each call gets a virtual thread, under the same cap.
+    @Bean
+    public AsyncTaskExecutor imgurBatchExecutor(@Value("${imgur.batch.concurrency}") int concurrency, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("imgur-batch-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrency);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("imgur-batch-");
+        return executor;
+    }
+
+    // CPU-bound image decoding and encoding; one thread per core unless configured otherwise
+    @Bean
+    public ThreadPoolTaskExecutor imageProcessingExecutor(@Value("${imgur.processing.threads}") int threads,
+                                                          @Value("${imgur.processing.queue-capacity}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-processing-");
+        return executor;
+    }
+
+    // Runs the non-blocking Imgur client's I/O completions and what the caller chains onto them;
+    // the number of calls in flight is not tied to this pool's size
+    @Bean
+    public ThreadPoolTaskExecutor imgurAsyncExecutor(@Value("${imgur.http.async-threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("imgur-async-");
+        return executor;
+    }
+
+    // Saves the image row once an asynchronous upload completes. JPA blocks, so that work stays off
+    // imgurAsyncExecutor, which completes every non-blocking Imgur call
+    @Bean
+    public ThreadPoolTaskExecutor uploadSaveExecutor(@Value("${imgur.upload.async.save-threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("upload-save-");
+        return executor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.imgur_app.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Regions of the Hibernate second-level cache. They are created here from imgur.entity-cache.*
+ * so every region has a size bound, and the cache manager is handed to Hibernate; regions that
+ * aren't created here make startup fail instead of silently getting an unbounded default.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String USERS_REGION = "users";
+    public static final String USERS_BY_USERNAME_REGION = "users-by-username";
+    public static final String IMAGES_REGION = "images";
+
+    // Hibernate's own regions for query results and for the table timestamps that invalidate them
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    private static final AtomicInteger CACHE_MANAGERS = new AtomicInteger();
+
+    // One cache manager per application context, so contexts sharing a JVM (tests) never share entities
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${imgur.entity-cache.users.max-size}") long usersMaxSize,
+                                              @Value("${imgur.entity-cache.users.ttl}") Duration usersTtl,
+                                              @Value("${imgur.entity-cache.images.max-size}") long imagesMaxSize,
+                                              @Value("${imgur.entity-cache.images.ttl}") Duration imagesTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager(
+                URI.create("urn:imgur-app:hibernate:" + CACHE_MANAGERS.incrementAndGet()), getClass().getClassLoader());
+        createRegion(cacheManager, USERS_REGION, usersMaxSize, usersTtl);
+        createRegion(cacheManager, USERS_BY_USERNAME_REGION, usersMaxSize, usersTtl);
+        createRegion(cacheManager, IMAGES_REGION, imagesMaxSize, imagesTtl);
+        createRegion(cacheManager, QUERY_RESULTS_REGION, usersMaxSize, usersTtl);
+        // A timestamp evicted before the query results it guards would let stale results through,
+        // so this region is neither bounded nor expired; it holds one entry per table
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.imgur_app.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ImgurHttpConfig {
+
+    @Bean
+    public OkHttpClient imgurHttpClient(MeterRegistry meterRegistry,
+                                        @Value("${imgur.http.max-idle-connections}") int maxIdleConnections,
+                                        @Value("${imgur.http.keep-alive}") Duration keepAlive,
+                                        @Value("${imgur.http.connect-timeout}") Duration connectTimeout,
+                                        @Value("${imgur.http.read-timeout}") Duration readTimeout,
+                                        @Value("${imgur.http.write-timeout}") Duration writeTimeout,
+                                        @Value("${imgur.http.http2-enabled}") boolean http2Enabled) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+
+        // Calls are made with execute(), which OkHttp's dispatcher doesn't limit; the Imgur bulkheads
+        // cap concurrency for both clients and report it as imgur.http.calls, see ImgurResilience
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .eventListener(OkHttpMetricsEventListener.builder(meterRegistry, "imgur.http.client")
+                        .uriMapper(ImgurHttpConfig::uriTemplate)
+                        .build());
+        if (!http2Enabled) {
+            builder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+
+        // Connection reuse
+        Gauge.builder("imgur.http.connections", connectionPool, ConnectionPool::connectionCount)
+                .tag("state", "total")
+                .register(meterRegistry);
+        Gauge.builder("imgur.http.connections", connectionPool, ConnectionPool::idleConnectionCount)
+                .tag("state", "idle")
+                .register(meterRegistry);
+
+        return builder.build();
+    }
+
+    // Non-blocking client for AsyncImgurClient: a selector thread multiplexes every connection, so
+    // in-flight calls don't each hold a thread the way OkHttp's dispatcher does
+    @Bean
+    public HttpClient imgurAsyncHttpClient(@Qualifier("imgurAsyncExecutor") Executor imgurAsyncExecutor,
+                                           @Value("${imgur.http.connect-timeout}") Duration connectTimeout,
+                                           @Value("${imgur.http.http2-enabled}") boolean http2Enabled) {
+        return HttpClient.newBuilder()
+                .executor(imgurAsyncExecutor)
+                .connectTimeout(connectTimeout)
+                .version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    // Collapse image ids and delete hashes so the uri tag stays low-cardinality
+    private static String uriTemplate(Request request) {
+        List<String> segments = request.url().pathSegments();
+        int imageIndex = segments.lastIndexOf("image");
+        if (imageIndex < 0) {
+            return "other";
+        }
+        return imageIndex == segments.size() - 1 ? "/image" : "/image/{id}";
+    }
+}
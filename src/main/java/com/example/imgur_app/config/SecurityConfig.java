@@ -1,22 +1,39 @@
 package com.example.imgur_app.config;
 
+import com.example.imgur_app.security.AccessTokenFilter;
+import com.example.imgur_app.security.AccessTokenService;
+import com.example.imgur_app.security.CachingAuthenticationProvider;
+import com.example.imgur_app.security.CredentialCache;
+import com.example.imgur_app.security.TimedPasswordEncoder;
 import com.example.imgur_app.service.CustomUserDetailsService;
+import com.example.imgur_app.service.StageMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
 @Configuration
 public class SecurityConfig {
 
+    static final String ADMIN_ROLE = "ADMIN";
+
     private final CustomUserDetailsService userDetailsService;
 
     public SecurityConfig(CustomUserDetailsService userDetailsService) {
@@ -24,22 +41,51 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(StageMetrics stageMetrics) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), stageMetrics);
+    }
+
+    @Bean
+    public AuthenticationManager authManager(PasswordEncoder passwordEncoder, CredentialCache credentialCache) {
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(userDetailsService);
+        daoProvider.setPasswordEncoder(passwordEncoder);
+        // Recently verified credentials skip BCrypt and the user lookup
+        return new ProviderManager(new CachingAuthenticationProvider(daoProvider, credentialCache));
     }
 
+    // Actuator endpoints expose timings, routes and metrics of every user, so application users
+    // (anyone can register) don't get in. They take HTTP Basic for the one admin account configured
+    // in imgur.admin.*; with no password set, nobody can reach them.
     @Bean
-    public AuthenticationManager authManager(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
-        AuthenticationManagerBuilder authManagerBuilder = http.getSharedObject(AuthenticationManagerBuilder.class);
-        authManagerBuilder
-                .userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder);
-        return authManagerBuilder.build();
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http,
+                                                   @Value("${imgur.admin.username}") String adminUsername,
+                                                   @Value("${imgur.admin.password:}") String adminPassword) throws Exception {
+        InMemoryUserDetailsManager admins = new InMemoryUserDetailsManager();
+        if (!adminPassword.isBlank()) {
+            admins.createUser(User.withUsername(adminUsername).password(adminPassword).roles(ADMIN_ROLE).build());
+        }
+        DaoAuthenticationProvider adminProvider = new DaoAuthenticationProvider();
+        adminProvider.setUserDetailsService(admins);
+        // The password is stored with its encoding prefix, e.g. {bcrypt}$2a$10$...
+        adminProvider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authenticationManager(new ProviderManager(adminProvider))
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole(ADMIN_ROLE))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .httpBasic(withDefaults());
+        return http.build();
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthenticationManager authenticationManager,
+                                           AccessTokenService accessTokenService) throws Exception {
         http
+                .authenticationManager(authenticationManager)
                 .csrf(csrf -> csrf.disable()) // Disable CSRF for testing purposes
                 .headers(headers -> headers
                         .frameOptions(frame -> frame.sameOrigin())// Allow H2 console to load in frames from the same origin
@@ -47,9 +93,11 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/h2-console/**").permitAll() // Allow access to H2 console
                         .requestMatchers("/api/users/register").permitAll() // Allow public access to register endpoint
+                        .requestMatchers("/api/auth/token").permitAll() // Token login checks the password itself
                         .requestMatchers("/api/images/**").authenticated() // Protect image endpoints
                         .anyRequest().authenticated()
                 )
+                .addFilterBefore(new AccessTokenFilter(accessTokenService), BasicAuthenticationFilter.class) // Signed bearer tokens
                 .httpBasic(withDefaults()); // Modern way to configure Basic Authentication
         return http.build();
     }
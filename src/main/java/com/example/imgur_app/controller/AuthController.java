@@ -0,0 +1,42 @@
+package com.example.imgur_app.controller;
+
+import com.example.imgur_app.dto.TokenRequestDTO;
+import com.example.imgur_app.dto.TokenResponseDTO;
+import com.example.imgur_app.security.AccessTokenService;
+import com.example.imgur_app.security.AuthenticatedUser;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    private final AuthenticationManager authenticationManager;
+    private final AccessTokenService accessTokenService;
+
+    public AuthController(AuthenticationManager authenticationManager, AccessTokenService accessTokenService) {
+        this.authenticationManager = authenticationManager;
+        this.accessTokenService = accessTokenService;
+    }
+
+    @PostMapping("/token")
+    public ResponseEntity<?> issueToken(@Valid @RequestBody TokenRequestDTO tokenRequestDTO) {
+        try {
+            // Verify the password once; the token is then checked by signature only
+            Authentication authentication = authenticationManager.authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated(
+                            tokenRequestDTO.getUsername(), tokenRequestDTO.getPassword()));
+
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            AccessTokenService.AccessToken token = accessTokenService.issue(user.getId(), user.getUsername());
+            return ResponseEntity.ok(new TokenResponseDTO(token.getValue(), accessTokenService.getTtl().toSeconds()));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(401).body("Invalid username or password");
+        }
+    }
+}
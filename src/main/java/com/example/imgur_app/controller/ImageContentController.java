@@ -0,0 +1,145 @@
+package com.example.imgur_app.controller;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.security.AuthenticatedUser;
+import com.example.imgur_app.service.ImageContentCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+// Serves image bytes from the local content cache, with conditional and range requests
+@RestController
+@RequestMapping("/api/images")
+public class ImageContentController {
+
+    // Tomcat's sendfile hand-off: the connector streams the file region straight from the page cache
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageRepository imageRepository;
+    private final ImageContentCache contentCache;
+    private final String contentCacheControl;
+
+    public ImageContentController(ImageRepository imageRepository, ImageContentCache contentCache,
+                                  @Value("${imgur.http-cache.image-content}") String contentCacheControl) {
+        this.imageRepository = imageRepository;
+        this.contentCache = contentCache;
+        this.contentCacheControl = contentCacheControl;
+    }
+
+    @GetMapping("/{id}/content")
+    public ResponseEntity<?> getImageContent(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal,
+                                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ImageSummaryDTO> image = imageRepository.findSummaryByIdAndUserId(id, principal.getId());
+        if (image.isEmpty()) {
+            if (imageRepository.existsById(id)) {
+                return ResponseEntity.status(403).body("Access denied");
+            }
+            return ResponseEntity.status(404).body("Image not found with id: " + id);
+        }
+
+        ImageContentCache.CachedContent content;
+        try {
+            content = contentCache.get(id, image.get().getLink());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Failed to fetch image content: " + e.getMessage());
+        }
+
+        // A matching ETag costs a 304 without touching the file
+        response.setHeader(HttpHeaders.CACHE_CONTROL, contentCacheControl);
+        if (new ServletWebRequest(request, response).checkNotModified(content.getEtag(), content.getLastModified())) {
+            return null;
+        }
+        writeContent(content, request, response);
+        return null;
+    }
+
+    private void writeContent(ImageContentCache.CachedContent content, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        long size = content.getSize();
+        long start = 0;
+        long end = size - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(content.getContentType());
+
+        HttpRange range = singleRange(request, content);
+        if (range != null) {
+            start = range.getRangeStart(size);
+            if (start >= size) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            end = range.getRangeEnd(size);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, content.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // Without sendfile, transfer the region straight from the channel instead of through a heap buffer loop
+        try (FileChannel channel = FileChannel.open(content.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    throw new IOException("Cached content was truncated: " + content.getFile());
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    // The requested range, or null to send the whole file (no Range, a stale If-Range, or several ranges)
+    private static HttpRange singleRange(HttpServletRequest request, ImageContentCache.CachedContent content) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(content.getEtag())) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored
+            return null;
+        }
+    }
+}
@@ -1,103 +1,379 @@
 package com.example.imgur_app.controller;
 
+import com.example.imgur_app.dto.BatchUploadResultDTO;
+import com.example.imgur_app.dto.BulkDeleteRequestDTO;
+import com.example.imgur_app.dto.BulkDeleteResultDTO;
+import com.example.imgur_app.dto.ImagePageDTO;
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.dto.UploadJobDTO;
 import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.UploadJob;
 import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.security.AuthenticatedUser;
+import com.example.imgur_app.service.AsyncImgurClient;
+import com.example.imgur_app.service.ImageBatchService;
+import com.example.imgur_app.service.ImageContentCache;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import com.example.imgur_app.service.ImageDeletionService;
+import com.example.imgur_app.service.ImageMetadataCache;
+import com.example.imgur_app.service.ImageProcessor;
 import com.example.imgur_app.service.ImgurClient;
-import com.example.imgur_app.entity.User;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.example.imgur_app.service.StageMetrics;
+import com.example.imgur_app.service.UnsupportedImageException;
+import com.example.imgur_app.service.UploadJobService;
+import com.example.imgur_app.timing.RequestTiming;
 import com.example.imgur_app.repository.UserRepository;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/images")
 public class ImageController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ImgurClient imgurClient;
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
+    private final UploadJobService uploadJobService;
+    private final ImageBatchService imageBatchService;
+    private final ImageDeduplicationService deduplicationService;
+    private final ImageMetadataCache metadataCache;
+    private final ImageProcessor imageProcessor;
+    private final StageMetrics metrics;
+    private final AsyncImgurClient asyncImgurClient;
+    private final ImageDeletionService imageDeletionService;
+    private final ImageContentCache contentCache;
+    private final Executor saveExecutor;
+
+    @Value("${imgur.http-cache.image-metadata}")
+    private String metadataCacheControl;
+
+    @Value("${imgur.http-cache.image-list}")
+    private String listCacheControl;
 
-    public ImageController(ImgurClient imgurClient, UserRepository userRepository, ImageRepository imageRepository) {
+    public ImageController(ImgurClient imgurClient, UserRepository userRepository, ImageRepository imageRepository,
+                           UploadJobService uploadJobService, ImageBatchService imageBatchService,
+                           ImageDeduplicationService deduplicationService, ImageMetadataCache metadataCache,
+                           ImageProcessor imageProcessor, StageMetrics metrics, AsyncImgurClient asyncImgurClient,
+                           ImageDeletionService imageDeletionService, ImageContentCache contentCache,
+                           @Qualifier("uploadSaveExecutor") Executor saveExecutor) {
         this.imgurClient = imgurClient;
         this.userRepository = userRepository;
         this.imageRepository = imageRepository;
+        this.uploadJobService = uploadJobService;
+        this.imageBatchService = imageBatchService;
+        this.deduplicationService = deduplicationService;
+        this.metadataCache = metadataCache;
+        this.imageProcessor = imageProcessor;
+        this.metrics = metrics;
+        this.asyncImgurClient = asyncImgurClient;
+        this.imageDeletionService = imageDeletionService;
+        this.contentCache = contentCache;
+        this.saveExecutor = saveExecutor;
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadImage(@RequestParam("image") MultipartFile image, Authentication authentication) {
+    public ResponseEntity<?> uploadImage(@RequestParam("image") MultipartFile image, @AuthenticationPrincipal AuthenticatedUser principal) {
+        Timer.Sample request = metrics.start();
         try {
-            // Authenticate the user
-            String username = authentication.getName();
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+            metrics.payload("original", image.getSize());
 
-            // Upload image to Imgur
-            ImgurClient.ImageMetadata metadata = imgurClient.uploadImage(image.getBytes());
+            // Reject non-images from their leading bytes before anything reads the whole upload
+            Timer.Sample stage = metrics.start();
+            imageProcessor.requireImage(image);
+            stage = metrics.lap(stage, "upload", "format-check");
+
+            // Hash the multipart temp file first so a repeated upload never reaches Imgur
+            String contentHash;
+            try (InputStream imageStream = image.getInputStream()) {
+                contentHash = deduplicationService.hash(imageStream);
+            }
+            stage = metrics.lap(stage, "upload", "hash");
+            Optional<ImageSummaryDTO> duplicate = deduplicationService.findDuplicate(principal.getId(), contentHash, image.getSize());
+            stage = metrics.lap(stage, "upload", "dedup-lookup");
+            if (duplicate.isPresent()) {
+                return finish(request, "upload", "duplicate", ResponseEntity.ok("Image already uploaded by this user.\n Image ID: " + duplicate.get().getId()
+                        + "\n Delete Hash: " + duplicate.get().getDeleteHash()
+                        + "\n Link: " + duplicate.get().getLink()));
+            }
+
+            // Downscale and strip metadata if needed, then stream the result to Imgur without buffering it on the heap
+            ImgurClient.ImageMetadata metadata;
+            try (ImageProcessor.ProcessedImage processed = imageProcessor.process(image, image.getSize());
+                 InputStream imageStream = processed.getInputStream()) {
+                stage = metrics.lap(stage, "upload", "process");
+                metrics.payload("processed", processed.getSize());
+                metadata = imgurClient.uploadImage(imageStream, processed.getSize());
+            }
+            stage = metrics.lap(stage, "upload", "imgur-upload");
 
             // Save image metadata in the database
             Image savedImage = new Image();
             savedImage.setDeleteHash(metadata.getDeleteHash());
             savedImage.setLink(metadata.getLink());
-            savedImage.setUser(user); // Associate the image with the authenticated user
+            savedImage.setClientId(metadata.getClientId());
+            savedImage.setContentHash(contentHash);
+            savedImage.setUser(userRepository.getReferenceById(principal.getId())); // Associate the image with the authenticated user without loading it
             imageRepository.save(savedImage);
+            metrics.lap(stage, "upload", "db-save");
 
-            return ResponseEntity.ok("Image uploaded and associated with user successfully!\n Image ID: " + savedImage.getId()
+            return finish(request, "upload", "uploaded", ResponseEntity.ok("Image uploaded and associated with user successfully!\n Image ID: " + savedImage.getId()
                     + "\n Delete Hash: " + savedImage.getDeleteHash()
-                    + "\n Link: " + savedImage.getLink());
+                    + "\n Link: " + savedImage.getLink()));
+        } catch (UnsupportedImageException e) {
+            return finish(request, "upload", "unsupported", ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Failed to upload image: " + e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return finish(request, "upload", "overloaded", ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Failed to upload image: image processing is at capacity"));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("Failed to upload image: " + e.getMessage());
+            return finish(request, "upload", "error", ResponseEntity.status(500).body("Failed to upload image: " + e.getMessage()));
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<?> viewImage(@PathVariable Long id, Authentication authentication) {
+    // Same as /upload, but no thread waits for Imgur: the request thread is released once the upload is
+    // sent and Spring MVC writes the response when the returned future completes
+    @PostMapping("/upload/async")
+    public CompletableFuture<ResponseEntity<?>> uploadImageAsync(@RequestParam("image") MultipartFile image,
+                                                                 @AuthenticationPrincipal AuthenticatedUser principal) {
+        Timer.Sample request = metrics.start();
+        // Owned here until the upload future takes it over; released in finally on every other path
+        ImageProcessor.ProcessedImage owned = null;
         try {
-            String username = authentication.getName();
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
+            metrics.payload("original", image.getSize());
 
-            Image image = imageRepository.findById(id)
-                    .orElseThrow(() -> new IllegalArgumentException("Image not found with id: " + id));
+            Timer.Sample stage = metrics.start();
+            imageProcessor.requireImage(image);
+            stage = metrics.lap(stage, "upload-async", "format-check");
 
-            // Ensure the image belongs to the authenticated user
-            if (!image.getUser().getId().equals(user.getId())) {
-                return ResponseEntity.status(403).body("Access denied");
+            String contentHash;
+            try (InputStream imageStream = image.getInputStream()) {
+                contentHash = deduplicationService.hash(imageStream);
             }
+            stage = metrics.lap(stage, "upload-async", "hash");
+            Optional<ImageSummaryDTO> duplicate = deduplicationService.findDuplicate(principal.getId(), contentHash, image.getSize());
+            stage = metrics.lap(stage, "upload-async", "dedup-lookup");
+            if (duplicate.isPresent()) {
+                return CompletableFuture.completedFuture(finish(request, "upload-async", "duplicate", ResponseEntity.ok("Image already uploaded by this user.\n Image ID: " + duplicate.get().getId()
+                        + "\n Delete Hash: " + duplicate.get().getDeleteHash()
+                        + "\n Link: " + duplicate.get().getLink())));
+            }
+
+            owned = imageProcessor.process(image, image.getSize());
+            // The client reads the upload from a file without blocking its threads, so an unchanged
+            // image is moved out of the multipart temp file into one that outlives the request
+            owned = owned.toFile();
+            Timer.Sample uploadStage = metrics.lap(stage, "upload-async", "process");
+            metrics.payload("processed", owned.getSize());
+
+            ImageProcessor.ProcessedImage upload = owned;
+            CompletableFuture<ResponseEntity<?>> response = asyncImgurClient.uploadImage(upload.getFile(), ImgurRateLimiter.Priority.INTERACTIVE)
+                    .whenComplete((metadata, error) -> closeQuietly(upload))
+                    // The save blocks on JPA, so it runs on its own pool rather than the one completing Imgur calls
+                    .<ResponseEntity<?>>thenApplyAsync(RequestTiming.propagate(metadata -> {
+                        Timer.Sample dbStage = metrics.lap(uploadStage, "upload-async", "imgur-upload");
+                        Image savedImage = new Image();
+                        savedImage.setDeleteHash(metadata.getDeleteHash());
+                        savedImage.setLink(metadata.getLink());
+                        savedImage.setClientId(metadata.getClientId());
+                        savedImage.setContentHash(contentHash);
+                        savedImage.setUser(userRepository.getReferenceById(principal.getId()));
+                        imageRepository.save(savedImage);
+                        metrics.lap(dbStage, "upload-async", "db-save");
+
+                        return finish(request, "upload-async", "uploaded", ResponseEntity.ok("Image uploaded and associated with user successfully!\n Image ID: " + savedImage.getId()
+                                + "\n Delete Hash: " + savedImage.getDeleteHash()
+                                + "\n Link: " + savedImage.getLink()));
+                    }), saveExecutor)
+                    .exceptionally(error -> {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof RejectedExecutionException) {
+                            return finish(request, "upload-async", "overloaded", ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Failed to upload image: the server is at capacity"));
+                        }
+                        return finish(request, "upload-async", "error", ResponseEntity.status(500).body("Failed to upload image: " + cause.getMessage()));
+                    });
+            owned = null;
+            return response;
+        } catch (UnsupportedImageException e) {
+            return CompletableFuture.completedFuture(finish(request, "upload-async", "unsupported", ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Failed to upload image: " + e.getMessage())));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(finish(request, "upload-async", "overloaded", ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Failed to upload image: image processing is at capacity")));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(finish(request, "upload-async", "error", ResponseEntity.status(500).body("Failed to upload image: " + e.getMessage())));
+        } finally {
+            closeQuietly(owned);
+        }
+    }
+
+    @PostMapping("/upload/batch")
+    public ResponseEntity<?> uploadImages(@RequestParam("images") List<MultipartFile> images,
+                                          @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            // Upload in parallel and report a result per file
+            List<BatchUploadResultDTO> results = imageBatchService.uploadAll(images, principal.getId());
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to upload images: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> deleteImages(@RequestBody BulkDeleteRequestDTO bulkDeleteRequestDTO,
+                                          @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            // Remove the owned images and report a result per deleteHash; Imgur is called in the background
+            List<BulkDeleteResultDTO> results = imageBatchService.deleteAll(
+                    bulkDeleteRequestDTO.getDeleteHashes(), principal.getId());
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to delete images: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitUploadJob(@RequestParam("image") MultipartFile image, @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            // Spool the image and hand it to the background workers
+            UploadJob job = uploadJobService.submit(image, principal.getId());
 
-            return ResponseEntity.ok(image.getLink());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/images/jobs/" + job.getId()))
+                    .body(new UploadJobDTO(job));
+        } catch (UnsupportedImageException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body("Failed to queue image upload: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to queue image upload: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getUploadJob(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            return uploadJobService.findJob(id, principal.getId())
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.ok(new UploadJobDTO(job)))
+                    .orElseGet(() -> ResponseEntity.status(404).body("Upload job not found with id: " + id));
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error: " + e.getMessage());
         }
     }
 
-    @DeleteMapping("/{deleteHash}")
-    public ResponseEntity<?> deleteImage(@PathVariable String deleteHash, Authentication authentication) {
+    @GetMapping
+    public ResponseEntity<?> listImages(@RequestParam(defaultValue = "0") Long afterId,
+                                        @RequestParam(defaultValue = "50") int limit,
+                                        @AuthenticationPrincipal AuthenticatedUser principal) {
+        Timer.Sample request = metrics.start();
         try {
-            // Authenticate the user
-            String username = authentication.getName();
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
-
-            // Find the image by deleteHash
-            Image image = (Image) imageRepository.findByDeleteHash(deleteHash)
-                    .orElseThrow(() -> new IllegalArgumentException("Image not found with deleteHash: " + deleteHash));
-
-            // Ensure the image belongs to the authenticated user
-            if (!image.getUser().getId().equals(user.getId())) {
-                return ResponseEntity.status(403).body("Access denied: You cannot delete this image.");
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+            // Fetch one extra row to know whether another page follows
+            Timer.Sample stage = metrics.start();
+            List<ImageSummaryDTO> images = imageRepository.findSummariesByUserIdAfter(
+                    principal.getId(), afterId, Limit.of(pageSize + 1));
+            metrics.lap(stage, "list", "db-query");
+
+            Long nextAfterId = null;
+            if (images.size() > pageSize) {
+                images = images.subList(0, pageSize);
+                nextAfterId = images.get(pageSize - 1).getId();
             }
+            return finish(request, "list", "success", ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, listCacheControl)
+                    .body(new ImagePageDTO(images, nextAfterId)));
+        } catch (Exception e) {
+            return finish(request, "list", "error", ResponseEntity.status(500).body("Error: " + e.getMessage()));
+        }
+    }
 
-            // Delete the image from Imgur
-            imgurClient.deleteImage(deleteHash);
+    @GetMapping("/{id}")
+    public ResponseEntity<?> viewImage(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        Timer.Sample request = metrics.start();
+        try {
+            // Served from the metadata cache when possible; one indexed query by id and owner otherwise
+            Timer.Sample stage = metrics.start();
+            Optional<ImageMetadataCache.CachedImage> image = metadataCache.find(id, principal.getId());
+            metrics.lap(stage, "view", "metadata-lookup");
+            if (image.isEmpty()) {
+                if (imageRepository.existsById(id)) {
+                    return finish(request, "view", "forbidden", ResponseEntity.status(403).body("Access denied"));
+                }
+                throw new IllegalArgumentException("Image not found with id: " + id);
+            }
 
-            // Remove the image record from the database
-            imageRepository.delete(image);
+            // Spring answers a matching If-None-Match with 304 and no body
+            return finish(request, "view", "success", ResponseEntity.ok()
+                    .eTag(image.get().getEtag())
+                    .header(HttpHeaders.CACHE_CONTROL, metadataCacheControl)
+                    .body(image.get().getSummary().getLink()));
+        } catch (Exception e) {
+            return finish(request, "view", "error", ResponseEntity.status(500).body("Error: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{deleteHash}")
+    public ResponseEntity<?> deleteImage(@PathVariable String deleteHash, @AuthenticationPrincipal AuthenticatedUser principal) {
+        Timer.Sample request = metrics.start();
+        try {
+            // Find the image by deleteHash and owner in one query
+            Timer.Sample stage = metrics.start();
+            Optional<ImageSummaryDTO> image = imageRepository.findSummaryByDeleteHashAndUserId(deleteHash, principal.getId());
+            stage = metrics.lap(stage, "delete", "db-lookup");
+            if (image.isEmpty()) {
+                if (imageRepository.existsByDeleteHash(deleteHash)) {
+                    return finish(request, "delete", "forbidden", ResponseEntity.status(403).body("Access denied: You cannot delete this image."));
+                }
+                throw new IllegalArgumentException("Image not found with deleteHash: " + deleteHash);
+            }
+
+            // Remove the image record and queue its Imgur delete in one transaction; Imgur is called in the background
+            if (!imageDeletionService.delete(image.get(), principal.getId())) {
+                throw new IllegalArgumentException("Image not found with deleteHash: " + deleteHash);
+            }
+            metadataCache.invalidate(image.get().getId());
+            contentCache.invalidate(image.get().getId());
+            metrics.lap(stage, "delete", "db-delete");
 
-            return ResponseEntity.ok("Image deleted successfully!");
+            return finish(request, "delete", "deleted", ResponseEntity.ok("Image deleted successfully!"));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("Failed to delete image: " + e.getMessage());
+            return finish(request, "delete", "error", ResponseEntity.status(500).body("Failed to delete image: " + e.getMessage()));
         }
     }
 
+    private static void closeQuietly(ImageProcessor.ProcessedImage image) {
+        if (image != null) {
+            try {
+                image.close();
+            } catch (IOException e) {
+                // At worst a processed copy is left behind in the temp directory
+            }
+        }
+    }
+
+    // Records the whole operation by outcome and response status
+    private ResponseEntity<?> finish(Timer.Sample request, String operation, String outcome, ResponseEntity<?> response) {
+        metrics.finish(request, operation, outcome, response.getStatusCode().value());
+        return response;
+    }
+
 }
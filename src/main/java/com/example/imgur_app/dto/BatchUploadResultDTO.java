@@ -0,0 +1,58 @@
+package com.example.imgur_app.dto;
+
+public class BatchUploadResultDTO {
+
+    public enum Status {
+        UPLOADED,
+        FAILED
+    }
+
+    private final String filename;
+    private final Status status;
+    private final Long imageId;
+    private final String link;
+    private final String deleteHash;
+    private final String error;
+
+    private BatchUploadResultDTO(String filename, Status status, Long imageId, String link, String deleteHash,
+                                 String error) {
+        this.filename = filename;
+        this.status = status;
+        this.imageId = imageId;
+        this.link = link;
+        this.deleteHash = deleteHash;
+        this.error = error;
+    }
+
+    public static BatchUploadResultDTO uploaded(String filename, Long imageId, String link, String deleteHash) {
+        return new BatchUploadResultDTO(filename, Status.UPLOADED, imageId, link, deleteHash, null);
+    }
+
+    public static BatchUploadResultDTO failed(String filename, String error) {
+        return new BatchUploadResultDTO(filename, Status.FAILED, null, null, null, error);
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getImageId() {
+        return imageId;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public String getDeleteHash() {
+        return deleteHash;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.imgur_app.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BulkDeleteRequestDTO {
+
+    @NotEmpty
+    private List<String> deleteHashes;
+
+    public List<String> getDeleteHashes() {
+        return deleteHashes;
+    }
+
+    public void setDeleteHashes(List<String> deleteHashes) {
+        this.deleteHashes = deleteHashes;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.imgur_app.dto;
+
+public class BulkDeleteResultDTO {
+
+    public enum Status {
+        DELETED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    private final String deleteHash;
+    private final Status status;
+    private final String error;
+
+    public BulkDeleteResultDTO(String deleteHash, Status status, String error) {
+        this.deleteHash = deleteHash;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String getDeleteHash() {
+        return deleteHash;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
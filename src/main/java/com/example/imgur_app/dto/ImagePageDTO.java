@@ -0,0 +1,23 @@
+package com.example.imgur_app.dto;
+
+import java.util.List;
+
+public class ImagePageDTO {
+
+    private final List<ImageSummaryDTO> images;
+    private final Long nextAfterId;
+
+    public ImagePageDTO(List<ImageSummaryDTO> images, Long nextAfterId) {
+        this.images = images;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<ImageSummaryDTO> getImages() {
+        return images;
+    }
+
+    // Pass as afterId to fetch the next page; null when this is the last page
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.imgur_app.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class ImageSummaryDTO {
+
+    private final Long id;
+    private final String link;
+    private final String deleteHash;
+    private final String clientId;
+
+    public ImageSummaryDTO(Long id, String link, String deleteHash) {
+        this(id, link, deleteHash, null);
+    }
+
+    public ImageSummaryDTO(Long id, String link, String deleteHash, String clientId) {
+        this.id = id;
+        this.link = link;
+        this.deleteHash = deleteHash;
+        this.clientId = clientId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public String getDeleteHash() {
+        return deleteHash;
+    }
+
+    // Internal routing detail, not part of the API response
+    @JsonIgnore
+    public String getClientId() {
+        return clientId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.imgur_app.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class TokenRequestDTO {
+
+    @NotBlank
+    private String username;
+
+    @NotBlank
+    private String password;
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
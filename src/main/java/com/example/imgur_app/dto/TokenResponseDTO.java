@@ -0,0 +1,25 @@
+package com.example.imgur_app.dto;
+
+public class TokenResponseDTO {
+
+    private final String accessToken;
+    private final String tokenType = "Bearer";
+    private final long expiresIn;
+
+    public TokenResponseDTO(String accessToken, long expiresIn) {
+        this.accessToken = accessToken;
+        this.expiresIn = expiresIn;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.imgur_app.dto;
+
+import com.example.imgur_app.entity.UploadJob;
+
+import java.time.Instant;
+
+public class UploadJobDTO {
+
+    private final Long id;
+    private final UploadJob.Status status;
+    private final Long imageId;
+    private final String error;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+
+    public UploadJobDTO(UploadJob job) {
+        this.id = job.getId();
+        this.status = job.getStatus();
+        this.imageId = job.getImageId();
+        this.error = job.getErrorMessage();
+        this.createdAt = job.getCreatedAt();
+        this.updatedAt = job.getUpdatedAt();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UploadJob.Status getStatus() {
+        return status;
+    }
+
+    public Long getImageId() {
+        return imageId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -1,15 +1,25 @@
 package com.example.imgur_app.entity;
 
+import com.example.imgur_app.config.HibernateCacheConfig;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_delete_hash", columnList = "delete_hash", unique = true),
+        @Index(name = "idx_images_user_id_id", columnList = "user_id, id"), // Owner lookups and keyset pages
+        @Index(name = "idx_images_user_id_content_hash", columnList = "user_id, content_hash") // Duplicate uploads
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.IMAGES_REGION) // Bulk deletes evict the region
 public class Image {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_seq")
+    @SequenceGenerator(name = "images_seq", sequenceName = "images_seq", allocationSize = 50) // Pooled ids keep JDBC insert batching enabled
     private Long id;
 
     @Column(name = "delete_hash", nullable = false)
@@ -18,6 +28,14 @@ public class Image {
     @Column(nullable = false)
     private String link;
 
+    // Hex SHA-256 of the uploaded bytes; null for images stored before hashes were recorded
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // The Imgur client id that uploaded the image; deletes have to go through the same id
+    @Column(name = "client_id")
+    private String clientId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -46,6 +64,22 @@ public class Image {
         this.link = link;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
     public User getUser() {
         return user;
     }
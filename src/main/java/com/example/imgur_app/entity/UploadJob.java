@@ -0,0 +1,155 @@
+package com.example.imgur_app.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_jobs", indexes = {
+        @Index(name = "idx_upload_jobs_status", columnList = "status")
+})
+public class UploadJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "spool_file", nullable = false)
+    private String spoolFile;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "image_id")
+    private Long imageId;
+
+    // The Imgur upload, recorded as soon as it succeeds so a rerun of the job doesn't upload again
+    @Column(name = "imgur_delete_hash")
+    private String imgurDeleteHash;
+
+    @Column(name = "imgur_link")
+    private String imgurLink;
+
+    @Column(name = "imgur_client_id")
+    private String imgurClientId;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+        if (createdAt == null) {
+            createdAt = updatedAt;
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getSpoolFile() {
+        return spoolFile;
+    }
+
+    public void setSpoolFile(String spoolFile) {
+        this.spoolFile = spoolFile;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getImageId() {
+        return imageId;
+    }
+
+    public void setImageId(Long imageId) {
+        this.imageId = imageId;
+    }
+
+    public String getImgurDeleteHash() {
+        return imgurDeleteHash;
+    }
+
+    public void setImgurDeleteHash(String imgurDeleteHash) {
+        this.imgurDeleteHash = imgurDeleteHash;
+    }
+
+    public String getImgurLink() {
+        return imgurLink;
+    }
+
+    public void setImgurLink(String imgurLink) {
+        this.imgurLink = imgurLink;
+    }
+
+    public String getImgurClientId() {
+        return imgurClientId;
+    }
+
+    public void setImgurClientId(String imgurClientId) {
+        this.imgurClientId = imgurClientId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
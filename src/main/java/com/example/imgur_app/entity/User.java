@@ -1,14 +1,21 @@
 package com.example.imgur_app.entity;
 
+import com.example.imgur_app.config.HibernateCacheConfig;
+import com.example.imgur_app.security.UserCacheInvalidationListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
 @Entity
 @Table(name = "users") // Maps to table named 'users'
+@EntityListeners(UserCacheInvalidationListener.class) // Drop cached credentials on password change or deletion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.USERS_REGION) // Read on every login and upload
 @NoArgsConstructor
 public class User {
 
@@ -0,0 +1,23 @@
+package com.example.imgur_app.repository;
+
+import com.example.imgur_app.entity.ImageDeletion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ImageDeletionRepository extends JpaRepository<ImageDeletion, Long> {
+    // Oldest due deletions first, on the (status, next_attempt_at) index
+    List<ImageDeletion> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(ImageDeletion.Status status, Instant now,
+                                                                              Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ImageDeletion d where d.status = :status and d.updatedAt < :before")
+    int deleteByStatusAndUpdatedAtBefore(@Param("status") ImageDeletion.Status status, @Param("before") Instant before);
+}
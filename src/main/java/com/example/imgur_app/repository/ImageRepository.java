@@ -1,10 +1,57 @@
 package com.example.imgur_app.repository;
 
+import com.example.imgur_app.dto.ImageSummaryDTO;
 import com.example.imgur_app.entity.Image;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ImageRepository extends JpaRepository<Image, Long> {
-    Optional<Object> findByDeleteHash(String deleteHash);
+    Optional<Image> findByDeleteHash(String deleteHash);
+
+    boolean existsByDeleteHash(String deleteHash);
+
+    // Ownership is checked in the same indexed statement; i.user.id reads the FK column without a join
+    @Query("select new com.example.imgur_app.dto.ImageSummaryDTO(i.id, i.link, i.deleteHash, i.clientId) "
+            + "from Image i where i.id = :id and i.user.id = :userId")
+    Optional<ImageSummaryDTO> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("select new com.example.imgur_app.dto.ImageSummaryDTO(i.id, i.link, i.deleteHash, i.clientId) "
+            + "from Image i where i.deleteHash = :deleteHash and i.user.id = :userId")
+    Optional<ImageSummaryDTO> findSummaryByDeleteHashAndUserId(@Param("deleteHash") String deleteHash,
+                                                               @Param("userId") Long userId);
+
+    @Query("select new com.example.imgur_app.dto.ImageSummaryDTO(i.id, i.link, i.deleteHash, i.clientId) "
+            + "from Image i where i.deleteHash in :deleteHashes and i.user.id = :userId")
+    List<ImageSummaryDTO> findSummariesByDeleteHashInAndUserId(@Param("deleteHashes") Collection<String> deleteHashes,
+                                                               @Param("userId") Long userId);
+
+    // Keyset pagination: seeks past afterId on the (user_id, id) index instead of scanning an OFFSET
+    @Query("select new com.example.imgur_app.dto.ImageSummaryDTO(i.id, i.link, i.deleteHash, i.clientId) "
+            + "from Image i where i.user.id = :userId and i.id > :afterId order by i.id")
+    List<ImageSummaryDTO> findSummariesByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                                     Limit limit);
+
+    // Same content uploaded earlier by the same user, on the (user_id, content_hash) index
+    @Query("select new com.example.imgur_app.dto.ImageSummaryDTO(i.id, i.link, i.deleteHash, i.clientId) "
+            + "from Image i where i.user.id = :userId and i.contentHash = :contentHash order by i.id")
+    List<ImageSummaryDTO> findSummariesByUserIdAndContentHash(@Param("userId") Long userId,
+                                                              @Param("contentHash") String contentHash, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Image i where i.id = :id and i.user.id = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Image i where i.id in :ids and i.user.id = :userId")
+    int deleteAllByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
 }
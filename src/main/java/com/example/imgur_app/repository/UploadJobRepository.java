@@ -0,0 +1,30 @@
+package com.example.imgur_app.repository;
+
+import com.example.imgur_app.entity.UploadJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadJobRepository extends JpaRepository<UploadJob, Long> {
+    Optional<UploadJob> findByIdAndUserId(Long id, Long userId);
+
+    List<UploadJob> findTop100ByStatusOrderByIdAsc(UploadJob.Status status);
+
+    @Transactional
+    @Modifying
+    @Query("update UploadJob j set j.status = :to where j.status = :from")
+    int updateStatus(@Param("from") UploadJob.Status from, @Param("to") UploadJob.Status to);
+
+    // Moves one job only if it is still in the expected state; 0 means another worker or node got there first
+    @Transactional
+    @Modifying
+    @Query("update UploadJob j set j.status = :to, j.updatedAt = :now where j.id = :id and j.status = :from")
+    int transition(@Param("id") Long id, @Param("from") UploadJob.Status from, @Param("to") UploadJob.Status to,
+                   @Param("now") Instant now);
+}
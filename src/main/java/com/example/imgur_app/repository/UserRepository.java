@@ -1,10 +1,19 @@
 package com.example.imgur_app.repository;
 
+import com.example.imgur_app.config.HibernateCacheConfig;
 import com.example.imgur_app.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Cached id lookup; any write to the users table invalidates it, misses for unknown names included
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = HibernateCacheConfig.USERS_BY_USERNAME_REGION)
+    })
     Optional<User> findByUsername(String username);
 }
@@ -0,0 +1,136 @@
+package com.example.imgur_app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies short-lived HMAC-SHA256 signed access tokens of the form
+ * {@code base64url(userId:expiresAt:username).base64url(signature)}. Verification is pure CPU work,
+ * so any node sharing the secret can authenticate a request without a database or session lookup.
+ */
+@Service
+public class AccessTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenService.class);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac macPrototype;
+    private final Duration ttl;
+
+    public AccessTokenService(@Value("${auth.token.secret:}") String secret,
+                              @Value("${auth.token.ttl}") Duration ttl) {
+        this.ttl = ttl;
+
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            // Tokens will only verify on this node and are invalidated by a restart
+            log.warn("auth.token.secret is not set; using a random per-process signing key");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        try {
+            this.macPrototype = Mac.getInstance("HmacSHA256");
+            this.macPrototype.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    public AccessToken issue(Long userId, String username) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        String payload = userId + ":" + expiresAt.getEpochSecond() + ":" + username;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        String token = ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+        return new AccessToken(token, userId, username, expiresAt);
+    }
+
+    public Optional<AccessToken> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0 || separator == token.length() - 1) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(payloadBytes))) {
+                return Optional.empty();
+            }
+
+            String payload = new String(payloadBytes, StandardCharsets.UTF_8);
+            int first = payload.indexOf(':');
+            int second = payload.indexOf(':', first + 1);
+            if (first <= 0 || second <= first) {
+                return Optional.empty();
+            }
+            Long userId = Long.valueOf(payload.substring(0, first));
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(payload.substring(first + 1, second)));
+            String username = payload.substring(second + 1);
+            if (!Instant.now().isBefore(expiresAt)) {
+                return Optional.empty();
+            }
+            return Optional.of(new AccessToken(token, userId, username, expiresAt));
+        } catch (IllegalArgumentException e) {
+            // Malformed base64 or numbers
+            return Optional.empty();
+        }
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = (Mac) macPrototype.clone();
+            return mac.doFinal(payload);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 implementation is not cloneable", e);
+        }
+    }
+
+    public static class AccessToken {
+        private final String value;
+        private final Long userId;
+        private final String username;
+        private final Instant expiresAt;
+
+        public AccessToken(String value, Long userId, String username, Instant expiresAt) {
+            this.value = value;
+            this.userId = userId;
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
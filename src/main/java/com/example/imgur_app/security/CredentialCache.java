@@ -0,0 +1,97 @@
+package com.example.imgur_app.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Bounded, expiring cache of recently verified credentials. Entries hold an HMAC of the presented
+ * password under a per-process random key, never the password itself, so a hit costs one HMAC
+ * instead of a BCrypt verification and a user lookup.
+ */
+@Component
+public class CredentialCache implements MeterBinder {
+
+    private final Cache<String, CachedCredential> cache;
+    private final Mac macPrototype;
+
+    public CredentialCache(@Value("${auth.cache.ttl}") Duration ttl,
+                           @Value("${auth.cache.max-size}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        try {
+            this.macPrototype = Mac.getInstance("HmacSHA256");
+            this.macPrototype.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    // Returns the cached principal if the username was recently verified with exactly this password
+    public UserDetails lookup(String username, String presentedPassword) {
+        CachedCredential cached = cache.getIfPresent(username);
+        if (cached == null) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(cached.passwordDigest, digest(presentedPassword))) {
+            return null;
+        }
+        return cached.userDetails;
+    }
+
+    public void put(String username, String presentedPassword, UserDetails userDetails) {
+        cache.put(username, new CachedCredential(digest(presentedPassword), userDetails));
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "credentials");
+    }
+
+    private byte[] digest(String password) {
+        try {
+            // Mac instances are not thread-safe; cloning the initialised prototype avoids re-keying per call
+            Mac mac = (Mac) macPrototype.clone();
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 implementation is not cloneable", e);
+        }
+    }
+
+    private static final class CachedCredential {
+        private final byte[] passwordDigest;
+        private final UserDetails userDetails;
+
+        private CachedCredential(byte[] passwordDigest, UserDetails userDetails) {
+            this.passwordDigest = passwordDigest;
+            this.userDetails = userDetails;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.imgur_app.security;
+
+import com.example.imgur_app.service.StageMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Times password hashing and verification, which dominate uncached authentication
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final StageMetrics metrics;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, StageMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        Timer.Sample sample = metrics.start();
+        String encoded = delegate.encode(rawPassword);
+        metrics.lap(sample, "register", "password-hash");
+        return encoded;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Timer.Sample sample = metrics.start();
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        metrics.lap(sample, "authenticate", "password-verify");
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
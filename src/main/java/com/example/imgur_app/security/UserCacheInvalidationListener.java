@@ -0,0 +1,41 @@
+package com.example.imgur_app.security;
+
+import com.example.imgur_app.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// JPA listener that drops cached credentials whenever a user row is changed or deleted
+@Component
+public class UserCacheInvalidationListener {
+
+    private final ObjectProvider<CredentialCache> credentialCache;
+
+    public UserCacheInvalidationListener(ObjectProvider<CredentialCache> credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
+    // Runs at flush, before commit. A login in between still reads the old row and can cache the old
+    // password again, so the entry is dropped once more after the transaction commits.
+    @PostUpdate
+    @PostRemove
+    public void invalidate(User user) {
+        String username = user.getUsername();
+        evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username);
+                }
+            });
+        }
+    }
+
+    private void evict(String username) {
+        credentialCache.ifAvailable(cache -> cache.invalidate(username));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.imgur_app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of ImgurClient on java.net.http. Calls return a CompletableFuture right
+ * away and no thread is held while Imgur responds, so a few threads can carry thousands of slow
+ * calls. Uses the same credential pool, rate limiters, resilience4j instances and meters as
+ * ImgurClient; waiting for a rate limit permit is scheduled rather than parked.
+ */
+@Service
+public class AsyncImgurClient {
+
+    @Value("${imgur.base.url}")
+    private String baseUrl;
+
+    @Value("${imgur.http.read-timeout}")
+    private Duration requestTimeout;
+
+    private final HttpClient httpClient;
+    private final ObjectReader uploadResponseReader;
+    private final ImgurResilience resilience;
+    private final ImgurCredentialPool credentialPool;
+    private final ImgurFailurePredicate failurePredicate = new ImgurFailurePredicate();
+    private final MeterRegistry registry;
+    private final Executor completionExecutor;
+
+    public AsyncImgurClient(HttpClient imgurAsyncHttpClient, ObjectMapper objectMapper, ImgurResilience resilience,
+                            ImgurCredentialPool credentialPool, MeterRegistry registry,
+                            @Qualifier("imgurAsyncExecutor") Executor completionExecutor) {
+        this.httpClient = imgurAsyncHttpClient;
+        this.uploadResponseReader = objectMapper.readerFor(ImgurClient.UploadResponse.class);
+        this.resilience = resilience;
+        this.credentialPool = credentialPool;
+        this.registry = registry;
+        this.completionExecutor = completionExecutor;
+    }
+
+    // Upload the file's content as a multipart form. The client reads the file as the connection
+    // accepts data, with reads that don't block the completion threads. Uploads are never retried.
+    public CompletableFuture<ImgurClient.ImageMetadata> uploadImage(Path imageFile, ImgurRateLimiter.Priority priority) {
+        return call(credentialPool.select(), priority, ImgurResilience.Operation.UPLOAD,
+                credential -> {
+                    HttpRequest.Builder request;
+                    try {
+                        request = multipartRequest(imageFile);
+                    } catch (FileNotFoundException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    return send(credential, "upload", request.uri(URI.create(baseUrl + "/image")),
+                            HttpResponse.BodyHandlers.ofByteArray(), "Failed to upload image: ")
+                            .thenApply(response -> {
+                                ImgurClient.ImageMetadata metadata = parseUploadResponse(response.body());
+                                return new ImgurClient.ImageMetadata(metadata.getImageId(), metadata.getDeleteHash(),
+                                        metadata.getLink(), credential.getClientId());
+                            });
+                });
+    }
+
+    // View Image
+    public CompletableFuture<String> viewImage(String imageId) {
+        return call(credentialPool.select(), ImgurRateLimiter.Priority.INTERACTIVE, ImgurResilience.Operation.VIEW,
+                credential -> send(credential, "view", HttpRequest.newBuilder(URI.create(baseUrl + "/image/" + imageId)).GET(),
+                        HttpResponse.BodyHandlers.ofString(), "Failed to fetch image: ")
+                        .thenApply(HttpResponse::body));
+    }
+
+    // Deletes through the client id that uploaded the image; null picks any configured id
+    public CompletableFuture<String> deleteImage(String deleteHash, String clientId, ImgurRateLimiter.Priority priority) {
+        ImgurCredential uploader;
+        try {
+            uploader = credentialPool.forClientId(clientId);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return call(uploader, priority, ImgurResilience.Operation.DELETE,
+                credential -> send(credential, "delete", HttpRequest.newBuilder(URI.create(baseUrl + "/image/" + deleteHash)).DELETE(),
+                        HttpResponse.BodyHandlers.ofString(), "Failed to delete image: ")
+                        .thenApply(HttpResponse::body));
+    }
+
+    private <T> CompletableFuture<T> call(ImgurCredential credential, ImgurRateLimiter.Priority priority,
+                                          ImgurResilience.Operation operation,
+                                          Function<ImgurCredential, CompletionStage<T>> call) {
+        String method = operation.name().toLowerCase();
+        Timer.Sample sample = Timer.start(registry);
+        // Waiting for quota is part of the latency callers see, as with ImgurClient. Every attempt,
+        // retries included, reserves its own permit and is shed while the limiter is blocked.
+        CompletableFuture<T> result = resilience.callAsync(operation, () -> permit(credential, priority),
+                () -> unwrapped(call.apply(credential)));
+        // Complete on our own pool, never on the HTTP client's selector thread
+        return result.handleAsync((value, error) -> {
+            Throwable cause = unwrap(error);
+            credential.recordResult(cause != null && failurePredicate.test(cause));
+            sample.stop(Timer.builder("imgur.client.requests")
+                    .tags("method", method, "outcome", cause == null ? "success" : ImgurClient.outcome(cause))
+                    .register(registry));
+            if (cause != null) {
+                throw new CompletionException(cause);
+            }
+            return value;
+        }, completionExecutor);
+    }
+
+    // Completes once the reserved rate limit permit is due, on our own pool if that means waiting
+    private CompletableFuture<Void> permit(ImgurCredential credential, ImgurRateLimiter.Priority priority) {
+        try {
+            long waitNanos = credential.getRateLimiter().reservePermit(priority);
+            if (waitNanos <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, completionExecutor));
+        } catch (ImgurRateLimitException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Sends one attempt and fails it with an ImgurApiException for a non-2xx status.
+    // Bodies are read in full by the client, so completions never block on the network.
+    private <B> CompletableFuture<HttpResponse<B>> send(ImgurCredential credential, String method, HttpRequest.Builder request,
+                                                        HttpResponse.BodyHandler<B> bodyHandler, String failureMessage) {
+        HttpRequest httpRequest = request
+                .timeout(requestTimeout)
+                .header("Authorization", "Client-ID " + credential.getClientId())
+                .build();
+        CompletableFuture<HttpResponse<B>> attempt = new CompletableFuture<>();
+        httpClient.sendAsync(httpRequest, bodyHandler).whenComplete((response, error) -> {
+            if (error != null) {
+                attempt.completeExceptionally(unwrap(error));
+                return;
+            }
+            Counter.builder("imgur.client.responses")
+                    .tags("method", method, "status", Integer.toString(response.statusCode()))
+                    .register(registry)
+                    .increment();
+            credential.getRateLimiter().update(response.statusCode(), name -> response.headers().firstValue(name).orElse(null));
+            if (response.statusCode() / 100 != 2) {
+                attempt.completeExceptionally(new ImgurApiException(failureMessage + response.statusCode(), response.statusCode()));
+                return;
+            }
+            attempt.complete(response);
+        });
+        return attempt;
+    }
+
+    // The file publisher knows its length, so the parts add up to a Content-Length
+    private static HttpRequest.Builder multipartRequest(Path imageFile) throws FileNotFoundException {
+        String boundary = UUID.randomUUID().toString();
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"image\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        return HttpRequest.newBuilder()
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(head),
+                        HttpRequest.BodyPublishers.ofFile(imageFile),
+                        HttpRequest.BodyPublishers.ofByteArray(tail)));
+    }
+
+    private ImgurClient.ImageMetadata parseUploadResponse(byte[] body) {
+        try {
+            ImgurClient.UploadResponse parsed = uploadResponseReader.readValue(body);
+            if (parsed.data == null) {
+                throw new CompletionException(new Exception("Failed to upload image: response has no data"));
+            }
+            return new ImgurClient.ImageMetadata(parsed.data.id, parsed.data.deletehash, parsed.data.link);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Fails with the bare cause, so the circuit breaker and retry see IOException or ImgurApiException
+    // rather than the CompletionException a dependent stage would wrap it in
+    private static <T> CompletionStage<T> unwrapped(CompletionStage<T> stage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        stage.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException
+                || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -2,31 +2,34 @@ package com.example.imgur_app.service;
 
 import com.example.imgur_app.entity.User;
 import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Optional;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final StageMetrics stageMetrics;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, StageMetrics stageMetrics) {
         this.userRepository = userRepository;
+        this.stageMetrics = stageMetrics;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        Timer.Sample lookup = stageMetrics.start();
+        Optional<User> found = userRepository.findByUsername(username);
+        stageMetrics.lap(lookup, "authenticate", "user-lookup");
+        User user = found.orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                new ArrayList<>()
-        );
+        // Keep the id on the principal so request handlers don't have to load the user again
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword());
     }
 }
\ No newline at end of file
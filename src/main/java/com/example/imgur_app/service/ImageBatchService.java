@@ -0,0 +1,203 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.dto.BatchUploadResultDTO;
+import com.example.imgur_app.dto.BulkDeleteResultDTO;
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.User;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+@Service
+public class ImageBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageBatchService.class);
+
+    private final ImgurClient imgurClient;
+    private final UserRepository userRepository;
+    private final ImageRepository imageRepository;
+    private final ImageDeduplicationService deduplicationService;
+    private final ImageMetadataCache metadataCache;
+    private final ImageContentCache contentCache;
+    private final ImageProcessor imageProcessor;
+    private final ImageDeletionService imageDeletionService;
+    private final Executor imgurBatchExecutor;
+    private final int maxBatchSize;
+
+    public ImageBatchService(ImgurClient imgurClient, UserRepository userRepository, ImageRepository imageRepository,
+                             ImageDeduplicationService deduplicationService, ImageMetadataCache metadataCache,
+                             ImageContentCache contentCache, ImageProcessor imageProcessor,
+                             ImageDeletionService imageDeletionService,
+                             @Qualifier("imgurBatchExecutor") Executor imgurBatchExecutor,
+                             @Value("${imgur.batch.max-size}") int maxBatchSize) {
+        this.imgurClient = imgurClient;
+        this.userRepository = userRepository;
+        this.imageRepository = imageRepository;
+        this.deduplicationService = deduplicationService;
+        this.metadataCache = metadataCache;
+        this.contentCache = contentCache;
+        this.imageProcessor = imageProcessor;
+        this.imageDeletionService = imageDeletionService;
+        this.imgurBatchExecutor = imgurBatchExecutor;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // Either an earlier upload of the same content or the metadata of a new Imgur upload
+    private record Upload(String contentHash, ImageSummaryDTO duplicate, ImgurClient.ImageMetadata metadata) {
+    }
+
+    public List<BatchUploadResultDTO> uploadAll(List<MultipartFile> files, Long userId) {
+        if (files.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Too many files: at most " + maxBatchSize + " per batch");
+        }
+
+        // Fan the Imgur uploads out; the executor's pool size caps concurrent outbound calls
+        List<CompletableFuture<Upload>> uploads = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            uploads.add(CompletableFuture.supplyAsync(() -> upload(file, userId), imgurBatchExecutor));
+        }
+
+        User user = userRepository.getReferenceById(userId);
+        List<Image> images = new ArrayList<>();
+        List<Integer> imageIndexes = new ArrayList<>();
+        List<BatchUploadResultDTO> results = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String filename = files.get(i).getOriginalFilename();
+            try {
+                Upload upload = uploads.get(i).join();
+                if (upload.duplicate() != null) {
+                    ImageSummaryDTO duplicate = upload.duplicate();
+                    results.add(BatchUploadResultDTO.uploaded(
+                            filename, duplicate.getId(), duplicate.getLink(), duplicate.getDeleteHash()));
+                    continue;
+                }
+                ImgurClient.ImageMetadata metadata = upload.metadata();
+
+                Image image = new Image();
+                image.setDeleteHash(metadata.getDeleteHash());
+                image.setLink(metadata.getLink());
+                image.setClientId(metadata.getClientId());
+                image.setContentHash(upload.contentHash());
+                image.setUser(user);
+                images.add(image);
+                imageIndexes.add(i);
+                results.add(null); // Filled in once the batch insert has assigned ids
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results.add(BatchUploadResultDTO.failed(filename, cause.getMessage()));
+            }
+        }
+
+        // One transaction; pooled sequence ids let Hibernate send the inserts as JDBC batches
+        try {
+            imageRepository.saveAll(images);
+        } catch (RuntimeException e) {
+            deleteUnsaved(images, userId, e);
+            for (int index : imageIndexes) {
+                results.set(index, BatchUploadResultDTO.failed(
+                        files.get(index).getOriginalFilename(), "Failed to save image: " + e.getMessage()));
+            }
+            return results;
+        }
+
+        for (int i = 0; i < images.size(); i++) {
+            Image image = images.get(i);
+            int index = imageIndexes.get(i);
+            results.set(index, BatchUploadResultDTO.uploaded(
+                    files.get(index).getOriginalFilename(), image.getId(), image.getLink(), image.getDeleteHash()));
+        }
+        return results;
+    }
+
+    public List<BulkDeleteResultDTO> deleteAll(List<String> deleteHashes, Long userId) {
+        if (deleteHashes == null || deleteHashes.isEmpty()) {
+            throw new IllegalArgumentException("No deleteHashes given");
+        }
+        Set<String> uniqueHashes = new LinkedHashSet<>(deleteHashes);
+        if (uniqueHashes.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Too many images: at most " + maxBatchSize + " per batch");
+        }
+
+        // Check ownership of the whole batch with one query
+        Map<String, ImageSummaryDTO> owned = new HashMap<>();
+        for (ImageSummaryDTO image : imageRepository.findSummariesByDeleteHashInAndUserId(uniqueHashes, userId)) {
+            owned.put(image.getDeleteHash(), image);
+        }
+
+        List<BulkDeleteResultDTO> results = new ArrayList<>(uniqueHashes.size());
+        for (String deleteHash : uniqueHashes) {
+            if (owned.containsKey(deleteHash)) {
+                results.add(new BulkDeleteResultDTO(deleteHash, BulkDeleteResultDTO.Status.DELETED, null));
+            } else {
+                results.add(new BulkDeleteResultDTO(deleteHash, BulkDeleteResultDTO.Status.NOT_FOUND,
+                        "Image not found with deleteHash: " + deleteHash));
+            }
+        }
+
+        // Remove every owned row in a single statement and queue the Imgur deletes in the same transaction
+        if (!owned.isEmpty()) {
+            imageDeletionService.deleteAll(owned.values(), userId);
+            List<Long> deletedIds = owned.values().stream().map(ImageSummaryDTO::getId).toList();
+            metadataCache.invalidateAll(deletedIds);
+            contentCache.invalidateAll(deletedIds);
+        }
+        return results;
+    }
+
+    // Nothing refers to the new uploads once their rows are rolled back, so they are deleted from Imgur
+    // through the outbox. If the outbox can't be written either, the delete hashes are logged for cleanup.
+    private void deleteUnsaved(List<Image> images, Long userId, RuntimeException saveFailure) {
+        log.warn("Could not save {} uploaded images; deleting them from Imgur", images.size(), saveFailure);
+        List<ImageSummaryDTO> uploads = new ArrayList<>(images.size());
+        for (Image image : images) {
+            uploads.add(new ImageSummaryDTO(null, image.getLink(), image.getDeleteHash(), image.getClientId()));
+        }
+        try {
+            imageDeletionService.deleteUnsaved(uploads, userId);
+        } catch (RuntimeException e) {
+            for (ImageSummaryDTO upload : uploads) {
+                log.error("Orphaned Imgur upload {} (client id {}) could not be queued for deletion",
+                        upload.getDeleteHash(), upload.getClientId(), e);
+            }
+        }
+    }
+
+    private Upload upload(MultipartFile file, Long userId) {
+        try {
+            imageProcessor.requireImage(file);
+            String contentHash;
+            try (InputStream imageStream = file.getInputStream()) {
+                contentHash = deduplicationService.hash(imageStream);
+            }
+            Optional<ImageSummaryDTO> duplicate = deduplicationService.findDuplicate(userId, contentHash, file.getSize());
+            if (duplicate.isPresent()) {
+                return new Upload(contentHash, duplicate.get(), null);
+            }
+            try (ImageProcessor.ProcessedImage processed = imageProcessor.process(file, file.getSize());
+                 InputStream imageStream = processed.getInputStream()) {
+                return new Upload(contentHash, null,
+                        imgurClient.uploadImage(imageStream, processed.getSize(), ImgurRateLimiter.Priority.BACKGROUND));
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
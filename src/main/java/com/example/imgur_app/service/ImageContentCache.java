@@ -0,0 +1,164 @@
+package com.example.imgur_app.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copies of image content, so repeated reads are served from disk instead of Imgur.
+ * Bounded by total file size; concurrent misses for the same image share a single download.
+ */
+@Component
+public class ImageContentCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageContentCache.class);
+
+    private final ImgurClient imgurClient;
+    private final ImageDeduplicationService hasher;
+    private final Path directory;
+    private final long evictionGraceMillis;
+    private final AsyncCache<Long, CachedContent> cache;
+
+    public ImageContentCache(ImgurClient imgurClient, ImageDeduplicationService hasher,
+                             @Value("${imgur.content-cache.dir}") String directory,
+                             @Value("${imgur.content-cache.max-size}") DataSize maxSize,
+                             @Value("${imgur.content-cache.eviction-grace}") Duration evictionGrace) throws IOException {
+        this.imgurClient = imgurClient;
+        this.hasher = hasher;
+        this.directory = Path.of(directory);
+        this.evictionGraceMillis = evictionGrace.toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long imageId, CachedContent content) -> (int) Math.min(content.getSize(), Integer.MAX_VALUE))
+                .removalListener(this::onRemoval)
+                .recordStats()
+                .buildAsync();
+
+        // Entries aren't persisted, so files left by a previous run are unreachable
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public CachedContent get(Long imageId, String link) throws Exception {
+        CompletableFuture<CachedContent> download = new CompletableFuture<>();
+        CompletableFuture<CachedContent> content = cache.get(imageId, (key, executor) -> download);
+        if (content == download) {
+            // This caller won the miss and downloads on its own thread; failed futures are dropped by the cache
+            try {
+                download.complete(fetch(imageId, link));
+            } catch (Exception e) {
+                download.completeExceptionally(e);
+            }
+        }
+        try {
+            return content.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    // Deleted images drop their file right away instead of waiting for size eviction
+    public void invalidate(Long imageId) {
+        cache.synchronous().invalidate(imageId);
+    }
+
+    public void invalidateAll(Collection<Long> imageIds) {
+        cache.synchronous().invalidateAll(imageIds);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "image-content");
+    }
+
+    private CachedContent fetch(Long imageId, String link) throws Exception {
+        // A fresh file per download, so a reader of an evicted copy never sees it overwritten
+        Path file = Files.createTempFile(directory, imageId + "-", ".img");
+        try {
+            String contentType = imgurClient.downloadImage(link, file);
+            String contentHash;
+            try (InputStream fileStream = Files.newInputStream(file)) {
+                contentHash = hasher.hash(fileStream);
+            }
+            // HTTP dates have second precision
+            long lastModified = System.currentTimeMillis() / 1000 * 1000;
+            return new CachedContent(file, Files.size(file), contentType, "\"" + contentHash + "\"", lastModified);
+        } catch (Exception e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    // Responses may still be streaming an evicted file, so it is deleted after a grace period
+    private void onRemoval(Long imageId, CachedContent content, RemovalCause cause) {
+        if (content == null) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                Files.deleteIfExists(content.getFile());
+            } catch (IOException e) {
+                log.warn("Could not delete cached content {}", content.getFile(), e);
+            }
+        }, CompletableFuture.delayedExecutor(evictionGraceMillis, TimeUnit.MILLISECONDS));
+    }
+
+    public static class CachedContent {
+        private final Path file;
+        private final long size;
+        private final String contentType;
+        private final String etag;
+        private final long lastModified;
+
+        public CachedContent(Path file, long size, String contentType, String etag, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
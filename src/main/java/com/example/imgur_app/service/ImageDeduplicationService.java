@@ -0,0 +1,74 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Recognises a user uploading the same content again, so the existing Imgur link is returned
+ * instead of paying for another upload and another images row.
+ */
+@Service
+public class ImageDeduplicationService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ImageRepository imageRepository;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public ImageDeduplicationService(ImageRepository imageRepository, MeterRegistry registry) {
+        this.imageRepository = imageRepository;
+        // Hit rate = hits / (hits + misses)
+        this.hits = Counter.builder("imgur.upload.dedup").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("imgur.upload.dedup").tag("result", "miss").register(registry);
+        this.bytesSaved = Counter.builder("imgur.upload.dedup.saved").baseUnit("bytes").register(registry);
+    }
+
+    // Hex SHA-256 of the stream, read in fixed-size chunks so memory use doesn't grow with the file
+    public String hash(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // The user's earlier upload of the same content, if any; every call counts towards the hit rate
+    public Optional<ImageSummaryDTO> findDuplicate(Long userId, String contentHash, long size) {
+        Optional<ImageSummaryDTO> duplicate = imageRepository
+                .findSummariesByUserIdAndContentHash(userId, contentHash, Limit.of(1))
+                .stream()
+                .findFirst();
+        if (duplicate.isPresent()) {
+            hits.increment();
+            if (size > 0) {
+                bytesSaved.increment(size);
+            }
+        } else {
+            misses.increment();
+        }
+        return duplicate;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.ImageDeletion;
+import com.example.imgur_app.repository.ImageDeletionRepository;
+import com.example.imgur_app.repository.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Deletes images through a transactional outbox: the image row is removed and an ImageDeletion is
+ * written in one transaction, so callers return without waiting for Imgur. A scheduled dispatcher
+ * sends the Imgur deletes in batches, retries transient failures with exponential backoff and
+ * records the result on each ImageDeletion.
+ */
+@Service
+public class ImageDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDeletionService.class);
+
+    private final ImageRepository imageRepository;
+    private final ImageDeletionRepository deletionRepository;
+    private final ImgurClient imgurClient;
+    private final ImgurFailurePredicate failurePredicate = new ImgurFailurePredicate();
+    private final TransactionTemplate transactionTemplate;
+    private final Executor imgurBatchExecutor;
+    private final MeterRegistry registry;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final Duration retention;
+
+    public ImageDeletionService(ImageRepository imageRepository, ImageDeletionRepository deletionRepository,
+                                ImgurClient imgurClient, TransactionTemplate transactionTemplate,
+                                @Qualifier("imgurBatchExecutor") Executor imgurBatchExecutor, MeterRegistry registry,
+                                @Value("${imgur.delete-outbox.batch-size}") int batchSize,
+                                @Value("${imgur.delete-outbox.max-attempts}") int maxAttempts,
+                                @Value("${imgur.delete-outbox.retry-delay}") Duration retryDelay,
+                                @Value("${imgur.delete-outbox.max-retry-delay}") Duration maxRetryDelay,
+                                @Value("${imgur.delete-outbox.retention}") Duration retention) {
+        this.imageRepository = imageRepository;
+        this.deletionRepository = deletionRepository;
+        this.imgurClient = imgurClient;
+        this.transactionTemplate = transactionTemplate;
+        this.imgurBatchExecutor = imgurBatchExecutor;
+        this.registry = registry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.retention = retention;
+    }
+
+    // Returns false if the row was already gone, e.g. deleted by a concurrent request
+    @Transactional
+    public boolean delete(ImageSummaryDTO image, Long userId) {
+        if (imageRepository.deleteByIdAndUserId(image.getId(), userId) == 0) {
+            return false;
+        }
+        deletionRepository.save(newDeletion(image, userId));
+        return true;
+    }
+
+    // Removes every row in one statement and queues their Imgur deletes in batched inserts
+    @Transactional
+    public void deleteAll(Collection<ImageSummaryDTO> images, Long userId) {
+        List<Long> ids = new ArrayList<>(images.size());
+        List<ImageDeletion> deletions = new ArrayList<>(images.size());
+        for (ImageSummaryDTO image : images) {
+            ids.add(image.getId());
+            deletions.add(newDeletion(image, userId));
+        }
+        imageRepository.deleteAllByIdInAndUserId(ids, userId);
+        deletionRepository.saveAll(deletions);
+    }
+
+    // Queues the Imgur deletes of uploads whose image rows could not be saved, so they aren't orphaned on Imgur
+    @Transactional
+    public void deleteUnsaved(Collection<ImageSummaryDTO> uploads, Long userId) {
+        List<ImageDeletion> deletions = new ArrayList<>(uploads.size());
+        for (ImageSummaryDTO upload : uploads) {
+            deletions.add(newDeletion(upload, userId));
+        }
+        deletionRepository.saveAll(deletions);
+    }
+
+    // Drains due deletions one batch at a time; stops early once Imgur pushes back
+    @Scheduled(fixedDelayString = "${imgur.delete-outbox.poll-interval-ms}")
+    public void dispatchPending() {
+        List<ImageDeletion> batch;
+        do {
+            batch = deletionRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    ImageDeletion.Status.PENDING, Instant.now(), Limit.of(batchSize));
+        } while (!batch.isEmpty() && dispatch(batch) && batch.size() == batchSize);
+    }
+
+    // Completed deletions are kept for a while as a record; failed ones stay until someone looks at them
+    @Scheduled(fixedDelayString = "${imgur.delete-outbox.cleanup-interval-ms}")
+    public void purgeCompleted() {
+        int purged = deletionRepository.deleteByStatusAndUpdatedAtBefore(
+                ImageDeletion.Status.DELETED, Instant.now().minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} completed image deletions", purged);
+        }
+    }
+
+    // Returns false if any delete was deferred by the rate limiter or circuit breaker
+    boolean dispatch(List<ImageDeletion> batch) {
+        // Fan the Imgur deletes out; the executor's pool size caps concurrent outbound calls
+        Map<Long, CompletableFuture<String>> remoteDeletes = new LinkedHashMap<>();
+        for (ImageDeletion deletion : batch) {
+            remoteDeletes.put(deletion.getId(), CompletableFuture.supplyAsync(
+                    () -> deleteRemote(deletion.getDeleteHash(), deletion.getClientId()), imgurBatchExecutor));
+        }
+
+        Map<Long, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<Long, CompletableFuture<String>> remoteDelete : remoteDeletes.entrySet()) {
+            try {
+                remoteDelete.getValue().join();
+            } catch (CompletionException e) {
+                failures.put(remoteDelete.getKey(), e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        // Record every result of the batch in one transaction
+        boolean[] deferred = {false};
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            for (ImageDeletion deletion : deletionRepository.findAllById(remoteDeletes.keySet())) {
+                Throwable failure = failures.get(deletion.getId());
+                String result = failure == null ? recordDeleted(deletion) : recordFailure(deletion, failure, now);
+                deferred[0] |= result.equals("deferred");
+                Counter.builder("imgur.delete.outbox")
+                        .tag("result", result)
+                        .register(registry)
+                        .increment();
+            }
+        });
+        return !deferred[0];
+    }
+
+    private String recordDeleted(ImageDeletion deletion) {
+        deletion.setAttempts(deletion.getAttempts() + 1);
+        deletion.setStatus(ImageDeletion.Status.DELETED);
+        deletion.setErrorMessage(null);
+        return "deleted";
+    }
+
+    private String recordFailure(ImageDeletion deletion, Throwable failure, Instant now) {
+        String outcome = ImgurClient.outcome(failure);
+        // Nothing was sent: wait for quota or for the circuit to close without using up an attempt
+        if (outcome.equals("shed") || outcome.equals("rejected")) {
+            deletion.setNextAttemptAt(now.plus(retryDelay));
+            return "deferred";
+        }
+        deletion.setAttempts(deletion.getAttempts() + 1);
+        deletion.setErrorMessage(truncate(failure.getMessage()));
+        // Imgur no longer knows the hash, e.g. after an earlier attempt whose response was lost
+        if (failure instanceof ImgurApiException apiException && apiException.getStatusCode() == 404) {
+            deletion.setStatus(ImageDeletion.Status.DELETED);
+            return "gone";
+        }
+        if (failurePredicate.test(failure) && deletion.getAttempts() < maxAttempts) {
+            deletion.setNextAttemptAt(now.plus(backoff(deletion.getAttempts())));
+            return "retry";
+        }
+        log.warn("Giving up on Imgur delete of image {} after {} attempts", deletion.getImageId(), deletion.getAttempts(), failure);
+        deletion.setStatus(ImageDeletion.Status.FAILED);
+        return "failed";
+    }
+
+    // retryDelay doubled for every attempt made so far, capped at maxRetryDelay
+    Duration backoff(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay;
+    }
+
+    private String deleteRemote(String deleteHash, String clientId) {
+        try {
+            return imgurClient.deleteImage(deleteHash, clientId, ImgurRateLimiter.Priority.BACKGROUND);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static ImageDeletion newDeletion(ImageSummaryDTO image, Long userId) {
+        ImageDeletion deletion = new ImageDeletion();
+        deletion.setImageId(image.getId());
+        deletion.setUserId(userId);
+        deletion.setDeleteHash(image.getDeleteHash());
+        deletion.setClientId(image.getClientId());
+        deletion.setStatus(ImageDeletion.Status.PENDING);
+        return deletion;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
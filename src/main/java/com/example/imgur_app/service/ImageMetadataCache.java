@@ -0,0 +1,84 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.repository.ImageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Image metadata by id together with its owner and ETag, so repeated reads (and their 304s) are
+ * answered without a database round trip. Images never change once stored; entries only have to
+ * be invalidated when the image is deleted.
+ */
+@Component
+public class ImageMetadataCache implements MeterBinder {
+
+    private final ImageRepository imageRepository;
+    private final Cache<Long, CachedImage> cache;
+
+    public ImageMetadataCache(ImageRepository imageRepository,
+                              @Value("${imgur.metadata-cache.ttl}") Duration ttl,
+                              @Value("${imgur.metadata-cache.max-size}") long maxSize) {
+        this.imageRepository = imageRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    // The image if it belongs to userId; an entry cached for another owner falls through to the database
+    public Optional<CachedImage> find(Long id, Long userId) {
+        CachedImage cached = cache.getIfPresent(id);
+        if (cached != null && cached.ownerId.equals(userId)) {
+            return Optional.of(cached);
+        }
+        Optional<CachedImage> loaded = imageRepository.findSummaryByIdAndUserId(id, userId)
+                .map(summary -> new CachedImage(summary, userId));
+        loaded.ifPresent(image -> cache.put(id, image));
+        return loaded;
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "image-metadata");
+    }
+
+    public static class CachedImage {
+        private final ImageSummaryDTO summary;
+        private final Long ownerId;
+        private final String etag;
+
+        public CachedImage(ImageSummaryDTO summary, Long ownerId) {
+            this.summary = summary;
+            this.ownerId = ownerId;
+            // Derived from the response content only, so every instance hands out the same tag
+            this.etag = "\"" + Long.toHexString(summary.getId()) + "-" + Integer.toHexString(summary.getLink().hashCode()) + "\"";
+        }
+
+        public ImageSummaryDTO getSummary() {
+            return summary;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.imgur_app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Optional stage in front of ImgurClient uploads: rejects non-images by their magic bytes, downscales
+ * JPEG and PNG images larger than max-dimension, re-encodes them and drops EXIF and other metadata
+ * segments. Decoding and encoding run on a dedicated pool sized to the CPU count.
+ */
+@Service
+public class ImageProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessor.class);
+
+    public enum ImageFormat {
+        JPEG, PNG, GIF, WEBP, BMP, TIFF
+    }
+
+    private static final int SNIFF_LENGTH = 12;
+
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final Executor processingExecutor;
+
+    public ImageProcessor(@Value("${imgur.processing.enabled}") boolean enabled,
+                          @Value("${imgur.processing.max-dimension}") int maxDimension,
+                          @Value("${imgur.processing.jpeg-quality}") float jpegQuality,
+                          @Qualifier("imageProcessingExecutor") Executor processingExecutor) {
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.processingExecutor = processingExecutor;
+    }
+
+    // Reads only the leading bytes, so a non-image is rejected without reading the rest of the upload
+    public ImageFormat requireImage(InputStreamSource source) throws IOException, UnsupportedImageException {
+        if (!enabled) {
+            return null;
+        }
+        byte[] header;
+        try (InputStream in = source.getInputStream()) {
+            header = in.readNBytes(SNIFF_LENGTH);
+        }
+        ImageFormat format = sniff(header);
+        if (format == null) {
+            throw new UnsupportedImageException("Unsupported image format");
+        }
+        return format;
+    }
+
+    public static ImageFormat sniff(byte[] header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return ImageFormat.JPEG;
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ImageFormat.PNG;
+        }
+        if (startsWith(header, 0, 'G', 'I', 'F', '8', '7', 'a') || startsWith(header, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return ImageFormat.GIF;
+        }
+        if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+            return ImageFormat.WEBP;
+        }
+        if (startsWith(header, 0, 'B', 'M')) {
+            return ImageFormat.BMP;
+        }
+        if (startsWith(header, 0, 'I', 'I', 0x2A, 0x00) || startsWith(header, 0, 'M', 'M', 0x00, 0x2A)) {
+            return ImageFormat.TIFF;
+        }
+        return null;
+    }
+
+    /**
+     * Returns what should be uploaded instead of source. The caller closes the result, which removes
+     * any temporary file. Formats that aren't re-encoded (GIF may be animated) pass through untouched.
+     */
+    public ProcessedImage process(InputStreamSource source, long size) throws Exception {
+        ImageFormat format = requireImage(source);
+        if (format != ImageFormat.JPEG && format != ImageFormat.PNG) {
+            return ProcessedImage.unchanged(source, size);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transform(source, size, format);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, processingExecutor).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    ProcessedImage transform(InputStreamSource source, long size, ImageFormat format) throws IOException {
+        try (InputStream sourceStream = source.getInputStream();
+             ImageInputStream input = ImageIO.createImageInputStream(sourceStream)) {
+            int orientation = format == ImageFormat.JPEG ? readJpegOrientation(source) : 1;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return ProcessedImage.unchanged(source, size);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                boolean oversized = Math.max(width, height) > maxDimension;
+
+                if (!oversized && orientation == 1) {
+                    // Already small enough: strip metadata losslessly rather than re-encoding
+                    return format == ImageFormat.JPEG ? stripJpegMetadata(source) : ProcessedImage.unchanged(source, size);
+                }
+
+                // Subsample while decoding so a 40 MP original never fully materialises on the heap
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / maxDimension);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                BufferedImage scaled = scale(decoded, format == ImageFormat.PNG);
+                BufferedImage oriented = orient(scaled, orientation);
+                return write(oriented, format);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g. CMYK JPEGs the JDK decoder can't read; Imgur accepts them as they are
+            log.debug("Could not process image, uploading it unchanged", e);
+            return ProcessedImage.unchanged(source, size);
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image, boolean keepAlpha) {
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    // Applies an EXIF orientation, which is lost with the rest of the metadata
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { transform.scale(-1.0, 1.0); transform.translate(-width, 0); }
+            case 3 -> { transform.translate(width, height); transform.rotate(Math.PI); }
+            case 4 -> { transform.scale(1.0, -1.0); transform.translate(0, -height); }
+            case 5 -> { transform.rotate(-Math.PI / 2); transform.scale(-1.0, 1.0); }
+            case 6 -> { transform.translate(height, 0); transform.rotate(Math.PI / 2); }
+            case 7 -> { transform.scale(-1.0, 1.0); transform.translate(-height, 0); transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+            default -> { transform.translate(0, width); transform.rotate(3 * Math.PI / 2); }
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height, image.getType());
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    private ProcessedImage write(BufferedImage image, ImageFormat format) throws IOException {
+        Path output = Files.createTempFile("imgur-processed-", format == ImageFormat.JPEG ? ".jpg" : ".png");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format == ImageFormat.JPEG ? "jpeg" : "png").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format == ImageFormat.JPEG) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            // No metadata is passed, so none is written
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        return ProcessedImage.ofFile(output);
+    }
+
+    // Copies the JPEG without APP1 (EXIF, XMP), APP3-APP13, APP15 and comment segments.
+    // APP0 (JFIF), APP2 (ICC profile) and APP14 (Adobe colour transform) affect how the image decodes and are kept.
+    private static ProcessedImage stripJpegMetadata(InputStreamSource source) throws IOException {
+        Path output = Files.createTempFile("imgur-processed-", ".jpg");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(source.getInputStream()));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            out.write(in.readUnsignedByte());
+            out.write(in.readUnsignedByte());
+            while (true) {
+                int marker = nextMarker(in);
+                if (marker == 0xDA || marker == 0xD9) {
+                    // Start of scan: the entropy-coded data and everything after it is copied as is
+                    out.write(0xFF);
+                    out.write(marker);
+                    in.transferTo(out);
+                    break;
+                }
+                int length = in.readUnsignedShort();
+                byte[] payload = new byte[length - 2];
+                in.readFully(payload);
+                boolean metadata = (marker >= 0xE1 && marker <= 0xEF && marker != 0xE2 && marker != 0xEE) || marker == 0xFE;
+                if (!metadata) {
+                    out.write(0xFF);
+                    out.write(marker);
+                    out.write(length >> 8);
+                    out.write(length & 0xFF);
+                    out.write(payload);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        return ProcessedImage.ofFile(output);
+    }
+
+    // EXIF orientation (1-8) from the APP1 segment, or 1 if there is none
+    static int readJpegOrientation(InputStreamSource source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(source.getInputStream()))) {
+            in.skipNBytes(2);
+            while (true) {
+                int marker = nextMarker(in);
+                if (marker == 0xDA || marker == 0xD9) {
+                    return 1;
+                }
+                int length = in.readUnsignedShort();
+                byte[] payload = new byte[length - 2];
+                in.readFully(payload);
+                if (marker == 0xE1 && payload.length > 14 && startsWith(payload, 0, 'E', 'x', 'i', 'f', 0, 0)) {
+                    return exifOrientation(payload, 6);
+                }
+            }
+        } catch (EOFException e) {
+            return 1;
+        }
+    }
+
+    private static int exifOrientation(byte[] exif, int tiffStart) {
+        boolean littleEndian = exif[tiffStart] == 'I';
+        int ifdOffset = readInt(exif, tiffStart + 4, littleEndian);
+        int ifd = tiffStart + ifdOffset;
+        if (ifdOffset < 8 || ifd + 2 > exif.length) {
+            return 1;
+        }
+        int entries = readShort(exif, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > exif.length) {
+                break;
+            }
+            if (readShort(exif, entry, littleEndian) == 0x0112) {
+                return readShort(exif, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int nextMarker(DataInputStream in) throws IOException {
+        int value = in.readUnsignedByte();
+        if (value != 0xFF) {
+            throw new IOException("Malformed JPEG: expected a marker");
+        }
+        // Any number of 0xFF fill bytes may precede the marker code
+        while (value == 0xFF) {
+            value = in.readUnsignedByte();
+        }
+        return value;
+    }
+
+    private static int readShort(byte[] bytes, int offset, boolean littleEndian) {
+        int b0 = bytes[offset] & 0xFF;
+        int b1 = bytes[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] bytes, int offset, boolean littleEndian) {
+        int high = readShort(bytes, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(bytes, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... prefix) {
+        if (bytes.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // An image ready to upload; closing it deletes the temporary file if processing produced one
+    public static final class ProcessedImage implements InputStreamSource, AutoCloseable {
+        private final InputStreamSource source;
+        private final long size;
+        private final Path temporaryFile;
+
+        private ProcessedImage(InputStreamSource source, long size, Path temporaryFile) {
+            this.source = source;
+            this.size = size;
+            this.temporaryFile = temporaryFile;
+        }
+
+        public static ProcessedImage unchanged(InputStreamSource source, long size) {
+            return new ProcessedImage(source, size, null);
+        }
+
+        static ProcessedImage ofFile(Path file) throws IOException {
+            return new ProcessedImage(() -> Files.newInputStream(file), Files.size(file), file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return source.getInputStream();
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isModified() {
+            return temporaryFile != null;
+        }
+
+        // The image as a file this object owns, for clients that send straight from disk. A processed image
+        // already is one; an unchanged multipart upload is moved into a temporary file, anything else copied.
+        // Use and close the returned image instead of this one.
+        public ProcessedImage toFile() throws IOException {
+            if (temporaryFile != null) {
+                return this;
+            }
+            Path file = Files.createTempFile("imgur-upload-", ".img");
+            try {
+                if (source instanceof MultipartFile multipartFile) {
+                    multipartFile.transferTo(file.toFile());
+                } else {
+                    try (InputStream in = source.getInputStream()) {
+                        Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                return new ProcessedImage(() -> Files.newInputStream(file), size, file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+
+        // The temporary file behind a processed image, or null if it is unchanged
+        public Path getFile() {
+            return temporaryFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (temporaryFile != null) {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.imgur_app.service;
+
+// Non-2xx response from the Imgur API; the status code drives retry and circuit breaker decisions
+public class ImgurApiException extends Exception {
+
+    private final int statusCode;
+
+    public ImgurApiException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    // Server errors and throttling are worth retrying; other client errors are not
+    public boolean isTransient() {
+        return statusCode >= 500 || statusCode == 429;
+    }
+}
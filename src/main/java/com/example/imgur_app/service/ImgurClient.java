@@ -1,62 +1,210 @@
 package com.example.imgur_app.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.core.functions.CheckedFunction;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
 @Service
 public class ImgurClient {
 
-    @Value("${imgur.client.id}")
-    private String clientId;
-
     @Value("${imgur.base.url}")
     private String baseUrl;
 
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private final OkHttpClient httpClient;
+
+    // Shared, thread-safe reader that binds the upload response straight from the body stream
+    private final ObjectReader uploadResponseReader;
+
+    private final ImgurResilience resilience;
+    private final ImgurCredentialPool credentialPool;
+    private final ImgurFailurePredicate failurePredicate = new ImgurFailurePredicate();
+    private final MeterRegistry registry;
+
+    public ImgurClient(OkHttpClient imgurHttpClient, ObjectMapper objectMapper, ImgurResilience resilience,
+                       ImgurCredentialPool credentialPool, MeterRegistry registry) {
+        this.httpClient = imgurHttpClient;
+        this.uploadResponseReader = objectMapper.readerFor(UploadResponse.class);
+        this.resilience = resilience;
+        this.credentialPool = credentialPool;
+        this.registry = registry;
+    }
 
     // Upload Image
     public ImageMetadata uploadImage(byte[] imageBytes) throws Exception {
+        return upload(RequestBody.create(imageBytes), ImgurRateLimiter.Priority.INTERACTIVE);
+    }
+
+    // Upload Image streamed from a file on disk (e.g. the multipart temp file)
+    public ImageMetadata uploadImage(Path imageFile) throws Exception {
+        return uploadImage(imageFile, ImgurRateLimiter.Priority.INTERACTIVE);
+    }
+
+    public ImageMetadata uploadImage(Path imageFile, ImgurRateLimiter.Priority priority) throws Exception {
+        return upload(StreamingRequestBody.ofPath(imageFile, Files.size(imageFile)), priority);
+    }
+
+    // Upload Image streamed from an input stream; contentLength may be -1 if unknown
+    public ImageMetadata uploadImage(InputStream imageStream, long contentLength) throws Exception {
+        return uploadImage(imageStream, contentLength, ImgurRateLimiter.Priority.INTERACTIVE);
+    }
+
+    public ImageMetadata uploadImage(InputStream imageStream, long contentLength,
+                                     ImgurRateLimiter.Priority priority) throws Exception {
+        return upload(StreamingRequestBody.ofStream(imageStream, contentLength), priority);
+    }
+
+    // Uploads are not idempotent and are never retried
+    private ImageMetadata upload(RequestBody imageBody, ImgurRateLimiter.Priority priority) throws Exception {
+        return call(credentialPool.select(), priority, ImgurResilience.Operation.UPLOAD,
+                credential -> doUpload(credential, imageBody));
+    }
+
+    private <T> T call(ImgurCredential credential, ImgurRateLimiter.Priority priority,
+                       ImgurResilience.Operation operation, CheckedFunction<ImgurCredential, T> call) throws Exception {
+        // Timed from before the rate limiter, since waiting for quota is part of the latency callers see
+        return timed(operation.name().toLowerCase(), () -> {
+            try {
+                // Every attempt takes its own permit, so retries are paced too and a retry after a 429 is
+                // shed while the limiter is blocked instead of going back to Imgur
+                T result = resilience.call(operation, () -> credential.getRateLimiter().acquire(priority),
+                        () -> call.apply(credential));
+                credential.recordResult(false);
+                return result;
+            } catch (Exception e) {
+                credential.recordResult(failurePredicate.test(e));
+                throw e;
+            }
+        });
+    }
+
+    // imgur.client.requests per method and outcome, including retries and time spent waiting for quota
+    private <T> T timed(String method, CheckedSupplier<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        try {
+            return call.get();
+        } catch (Exception e) {
+            outcome = outcome(e);
+            throw e;
+        } catch (Error e) {
+            outcome = "error";
+            throw e;
+        } catch (Throwable t) {
+            outcome = "error";
+            throw new IllegalStateException(t);
+        } finally {
+            sample.stop(Timer.builder("imgur.client.requests")
+                    .tags("method", method, "outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    static String outcome(Throwable e) {
+        if (e instanceof ImgurRateLimitException) {
+            return "shed";
+        }
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            return "rejected";
+        }
+        if (e instanceof ImgurApiException apiException) {
+            return apiException.getStatusCode() >= 500 ? "server_error" : "client_error";
+        }
+        return e instanceof IOException ? "io_error" : "error";
+    }
+
+    // Every response Imgur sends, retried attempts included, by method and status code
+    private void countResponse(String method, Response response) {
+        Counter.builder("imgur.client.responses")
+                .tags("method", method, "status", Integer.toString(response.code()))
+                .register(registry)
+                .increment();
+    }
+
+    private ImageMetadata doUpload(ImgurCredential credential, RequestBody imageBody) throws Exception {
         String uploadUrl = baseUrl + "/image";
 
         RequestBody body = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart("image", null, RequestBody.create(imageBytes))
+                .addFormDataPart("image", null, imageBody)
                 .build();
 
         Request request = new Request.Builder()
                 .url(uploadUrl)
                 .post(body)
-                .addHeader("Authorization", "Client-ID " + clientId)
+                .addHeader("Authorization", "Client-ID " + credential.getClientId())
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
+            countResponse("upload", response);
+            credential.getRateLimiter().update(response);
             if (!response.isSuccessful()) {
-                throw new Exception("Failed to upload image: " + response.message());
+                throw new ImgurApiException("Failed to upload image: " + response.message(), response.code());
             }
 
             // Parse the response
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode responseJson = objectMapper.readTree(response.body().string());
-            JsonNode data = responseJson.get("data");
-
-            return new ImageMetadata(
-                    data.get("id").asText(),
-                    data.get("deletehash").asText(),
-                    data.get("link").asText()
-            );
+            ImageMetadata metadata = parseUploadResponse(response.body().byteStream());
+            return new ImageMetadata(metadata.getImageId(), metadata.getDeleteHash(), metadata.getLink(),
+                    credential.getClientId());
+        }
+    }
+
+    ImageMetadata parseUploadResponse(InputStream body) throws Exception {
+        UploadResponse parsed = uploadResponseReader.readValue(body);
+        if (parsed.data == null) {
+            throw new Exception("Failed to upload image: response has no data");
         }
+        return new ImageMetadata(parsed.data.id, parsed.data.deletehash, parsed.data.link);
+    }
+
+    // Only the fields we use are bound
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class UploadResponse {
+        public UploadData data;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class UploadData {
+        public String id;
+        public String deletehash;
+        public String link;
     }
 
     public static class ImageMetadata {
+        private final String imageId;
         private final String deleteHash;
         private final String link;
+        private final String clientId;
 
         public ImageMetadata(String imageId, String deleteHash, String link) {
+            this(imageId, deleteHash, link, null);
+        }
+
+        // clientId is the Imgur application that uploaded the image; its deleteHash only works with that id
+        public ImageMetadata(String imageId, String deleteHash, String link, String clientId) {
+            this.imageId = imageId;
             this.deleteHash = deleteHash;
             this.link = link;
+            this.clientId = clientId;
+        }
+
+        public String getImageId() {
+            return imageId;
         }
 
         public String getDeleteHash() {
@@ -66,40 +214,92 @@ public class ImgurClient {
         public String getLink() {
             return link;
         }
+
+        public String getClientId() {
+            return clientId;
+        }
     }
 
     // View Image
     public String viewImage(String imageId) throws Exception {
+        return call(credentialPool.select(), ImgurRateLimiter.Priority.INTERACTIVE, ImgurResilience.Operation.VIEW,
+                credential -> doViewImage(credential, imageId));
+    }
+
+    private String doViewImage(ImgurCredential credential, String imageId) throws Exception {
         String viewUrl = baseUrl + "/image/" + imageId;
 
         Request request = new Request.Builder()
                 .url(viewUrl)
                 .get()
-                .addHeader("Authorization", "Client-ID " + clientId) // Use Client-ID header
+                .addHeader("Authorization", "Client-ID " + credential.getClientId()) // Use Client-ID header
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
+            countResponse("view", response);
+            credential.getRateLimiter().update(response);
             if (!response.isSuccessful()) {
-                throw new Exception("Failed to fetch image: " + response.message());
+                throw new ImgurApiException("Failed to fetch image: " + response.message(), response.code());
             }
             assert response.body() != null;
             return response.body().string();
         }
     }
 
+    // Download the image bytes from its public link into target and return their content type.
+    // The link is served by Imgur's CDN, which isn't metered like the API, so no rate limit permit is taken.
+    public String downloadImage(String link, Path target) throws Exception {
+        return timed("download", () -> resilience.call(ImgurResilience.Operation.VIEW, () -> doDownloadImage(link, target)));
+    }
+
+    private String doDownloadImage(String link, Path target) throws Exception {
+        Request request = new Request.Builder()
+                .url(link)
+                .get()
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            countResponse("download", response);
+            if (!response.isSuccessful()) {
+                throw new ImgurApiException("Failed to download image: " + response.message(), response.code());
+            }
+            ResponseBody body = response.body();
+            // Retries overwrite a partial file from the failed attempt
+            Files.copy(body.byteStream(), target, StandardCopyOption.REPLACE_EXISTING);
+            MediaType contentType = body.contentType();
+            return contentType != null ? contentType.toString() : "application/octet-stream";
+        }
+    }
+
     // Delete Image
     public String deleteImage(String deleteHash) throws Exception {
+        return deleteImage(deleteHash, ImgurRateLimiter.Priority.INTERACTIVE);
+    }
+
+    public String deleteImage(String deleteHash, ImgurRateLimiter.Priority priority) throws Exception {
+        return deleteImage(deleteHash, null, priority);
+    }
+
+    // Deletes through the client id that uploaded the image; null picks any configured id
+    public String deleteImage(String deleteHash, String clientId, ImgurRateLimiter.Priority priority) throws Exception {
+        return call(credentialPool.forClientId(clientId), priority, ImgurResilience.Operation.DELETE,
+                credential -> doDeleteImage(credential, deleteHash));
+    }
+
+    private String doDeleteImage(ImgurCredential credential, String deleteHash) throws Exception {
         String deleteUrl = baseUrl + "/image/" + deleteHash;
 
         Request request = new Request.Builder()
                 .url(deleteUrl)
                 .delete()
-                .addHeader("Authorization", "Client-ID " + clientId) // Use Client-ID header
+                .addHeader("Authorization", "Client-ID " + credential.getClientId()) // Use Client-ID header
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
+            countResponse("delete", response);
+            credential.getRateLimiter().update(response);
             if (!response.isSuccessful()) {
-                throw new Exception("Failed to delete image: " + response.message());
+                throw new ImgurApiException("Failed to delete image: " + response.message(), response.code());
             }
             assert response.body() != null;
             return response.body().string();
@@ -0,0 +1,41 @@
+package com.example.imgur_app.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// One Imgur application (client id) with its own rate limiter and a decaying recent error rate
+public class ImgurCredential {
+
+    // Weight of the newest result in the exponentially weighted error rate
+    private static final double ERROR_RATE_ALPHA = 0.1;
+
+    private final String clientId;
+    private final ImgurRateLimiter rateLimiter;
+    private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    public ImgurCredential(String clientId, ImgurRateLimiter rateLimiter) {
+        this.clientId = clientId;
+        this.rateLimiter = rateLimiter;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public ImgurRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public double getErrorRate() {
+        return Double.longBitsToDouble(errorRateBits.get());
+    }
+
+    public void recordResult(boolean failed) {
+        long current;
+        long updated;
+        do {
+            current = errorRateBits.get();
+            double rate = Double.longBitsToDouble(current);
+            updated = Double.doubleToLongBits(rate + ERROR_RATE_ALPHA * ((failed ? 1.0 : 0.0) - rate));
+        } while (!errorRateBits.compareAndSet(current, updated));
+    }
+}
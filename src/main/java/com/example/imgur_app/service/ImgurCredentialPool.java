@@ -0,0 +1,106 @@
+package com.example.imgur_app.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The configured Imgur client ids. Each call goes through the id with the most remaining quota,
+ * discounted by its recent error rate, so aggregate throughput grows with the number of ids.
+ * Deletes must use the id that uploaded the image, see {@link #forClientId(String)}.
+ */
+@Component
+public class ImgurCredentialPool implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ImgurCredentialPool.class);
+
+    // Score used for ids that haven't reported their quota yet
+    private static final long UNKNOWN_QUOTA_SCORE = 1_000_000;
+
+    private final List<ImgurCredential> credentials = new ArrayList<>();
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    public ImgurCredentialPool(@Value("${imgur.client.id}") List<String> clientIds,
+                               @Value("${imgur.rate-limit.requests-per-second}") double requestsPerSecond,
+                               @Value("${imgur.rate-limit.burst}") int burst,
+                               @Value("${imgur.rate-limit.background-reserve}") long backgroundReserve,
+                               @Value("${imgur.rate-limit.interactive-max-wait}") Duration interactiveMaxWait,
+                               @Value("${imgur.rate-limit.background-max-wait}") Duration backgroundMaxWait,
+                               @Value("${imgur.rate-limit.throttled-penalty}") Duration throttledPenalty) {
+        for (String clientId : clientIds) {
+            String trimmed = clientId.trim();
+            if (!trimmed.isEmpty()) {
+                credentials.add(new ImgurCredential(trimmed, new ImgurRateLimiter(trimmed, requestsPerSecond, burst,
+                        backgroundReserve, interactiveMaxWait, backgroundMaxWait, throttledPenalty)));
+            }
+        }
+        if (credentials.isEmpty()) {
+            throw new IllegalStateException("imgur.client.id must list at least one client id");
+        }
+    }
+
+    // Picks the healthiest id; ties rotate so unknown quotas still spread the load
+    public ImgurCredential select() {
+        int size = credentials.size();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        ImgurCredential best = null;
+        double bestScore = -1;
+        for (int i = 0; i < size; i++) {
+            ImgurCredential credential = credentials.get((start + i) % size);
+            double score = score(credential);
+            if (score > bestScore) {
+                best = credential;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // The id an image was uploaded with; falls back to selection for images stored before ids were recorded.
+    // An id that has since been removed from imgur.client.id fails: no other id can delete its images.
+    public ImgurCredential forClientId(String clientId) {
+        if (clientId == null) {
+            return select();
+        }
+        for (ImgurCredential credential : credentials) {
+            if (credential.getClientId().equals(clientId)) {
+                return credential;
+            }
+        }
+        log.warn("Imgur client id {} is no longer configured; its images can't be deleted until it is added back", clientId);
+        throw new IllegalStateException("Imgur client id " + clientId + " is no longer configured");
+    }
+
+    public List<ImgurCredential> getCredentials() {
+        return List.copyOf(credentials);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ImgurCredential credential : credentials) {
+            credential.getRateLimiter().bindTo(registry);
+            Gauge.builder("imgur.client.error-rate", credential, ImgurCredential::getErrorRate)
+                    .tag("client_id", credential.getClientId())
+                    .register(registry);
+        }
+    }
+
+    private static double score(ImgurCredential credential) {
+        ImgurRateLimiter rateLimiter = credential.getRateLimiter();
+        if (rateLimiter.isBlocked()) {
+            return 0;
+        }
+        long remaining = rateLimiter.remaining();
+        double quota = remaining < 0 ? UNKNOWN_QUOTA_SCORE : remaining;
+        return quota * (1.0 - credential.getErrorRate());
+    }
+}
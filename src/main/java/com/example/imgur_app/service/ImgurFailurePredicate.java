@@ -0,0 +1,19 @@
+package com.example.imgur_app.service;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Decides which ImgurClient failures count against the circuit breaker and are retried:
+ * I/O errors (timeouts, resets) and transient API statuses. A 404 for an unknown image is not an outage.
+ */
+public class ImgurFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        if (throwable instanceof ImgurApiException apiException) {
+            return apiException.isTransient();
+        }
+        return throwable instanceof IOException;
+    }
+}
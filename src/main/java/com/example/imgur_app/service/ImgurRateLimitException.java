@@ -0,0 +1,9 @@
+package com.example.imgur_app.service;
+
+// Thrown before a call is sent when the rate limiter sheds it; nothing reached Imgur
+public class ImgurRateLimitException extends Exception {
+
+    public ImgurRateLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.imgur_app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import okhttp3.Response;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces outbound Imgur calls with a token bucket and tracks the remaining quota reported in Imgur's
+ * X-RateLimit-* response headers. When the quota runs low, background work is shed first so
+ * interactive requests keep working; when it is exhausted every call is shed until the reset time.
+ * Lock-free: all state is held in atomics. There is one limiter per Imgur client id, see ImgurCredentialPool.
+ */
+public class ImgurRateLimiter implements MeterBinder {
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private static final long UNKNOWN = -1;
+
+    private final String clientId;
+    private final long baseIntervalNanos;
+    private final long burstNanos;
+    private final long backgroundReserve;
+    private final long interactiveMaxWaitNanos;
+    private final long backgroundMaxWaitNanos;
+    private final long throttledPenaltyNanos;
+
+    // Token bucket state: the time at which the next permit becomes available
+    private final AtomicLong nextFreeNanos;
+    // Widened when the remaining quota has to last until the reset time
+    private final AtomicLong intervalNanos;
+
+    private final AtomicLong clientRemaining = new AtomicLong(UNKNOWN);
+    private final AtomicLong userRemaining = new AtomicLong(UNKNOWN);
+    private final AtomicLong resetAtNanos = new AtomicLong(0);
+    private final AtomicLong blockedUntilNanos = new AtomicLong(0);
+
+    private Counter interactiveShed;
+    private Counter backgroundShed;
+    private Counter throttledResponses;
+
+    public ImgurRateLimiter(String clientId, double requestsPerSecond, int burst, long backgroundReserve,
+                            Duration interactiveMaxWait, Duration backgroundMaxWait, Duration throttledPenalty) {
+        this.clientId = clientId;
+        this.baseIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        // Lag of the next permit behind "now" that still grants it immediately: burst permits in a row
+        this.burstNanos = baseIntervalNanos * (Math.max(1, burst) - 1);
+        this.backgroundReserve = backgroundReserve;
+        this.interactiveMaxWaitNanos = interactiveMaxWait.toNanos();
+        this.backgroundMaxWaitNanos = backgroundMaxWait.toNanos();
+        this.throttledPenaltyNanos = throttledPenalty.toNanos();
+        this.intervalNanos = new AtomicLong(baseIntervalNanos);
+        this.nextFreeNanos = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    // Blocks until the call may be sent, or throws if it has to be shed
+    public void acquire(Priority priority) throws ImgurRateLimitException {
+        long waitNanos = reservePermit(priority);
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    // Takes a permit without blocking and returns how long the caller must wait before sending,
+    // or throws if the call has to be shed. Used by the asynchronous client to schedule the send.
+    public long reservePermit(Priority priority) throws ImgurRateLimitException {
+        if (isBlocked()) {
+            shed(priority, "Imgur rate limit exhausted");
+        }
+        long remaining = remaining();
+        if (priority == Priority.BACKGROUND && remaining != UNKNOWN && remaining <= backgroundReserve) {
+            shed(priority, "Imgur quota reserved for interactive requests");
+        }
+
+        long maxWait = priority == Priority.INTERACTIVE ? interactiveMaxWaitNanos : backgroundMaxWaitNanos;
+        long waitNanos = reserve(maxWait);
+        if (waitNanos < 0) {
+            shed(priority, "Imgur request rate limit reached");
+        }
+        return waitNanos;
+    }
+
+    // Reads the quota headers that Imgur sends on every response
+    public void update(Response response) {
+        update(response.code(), response::header);
+    }
+
+    // Same for responses from other HTTP clients; header returns null for a missing header
+    public void update(int statusCode, Function<String, String> header) {
+        long client = headerAsLong(header, "X-RateLimit-ClientRemaining");
+        long user = headerAsLong(header, "X-RateLimit-UserRemaining");
+        long userReset = headerAsLong(header, "X-RateLimit-UserReset");
+        if (client != UNKNOWN) {
+            clientRemaining.set(client);
+        }
+        if (user != UNKNOWN) {
+            userRemaining.set(user);
+        }
+
+        long now = System.nanoTime();
+        if (userReset != UNKNOWN) {
+            long secondsToReset = Math.max(0, userReset - System.currentTimeMillis() / 1000);
+            resetAtNanos.set(now + TimeUnit.SECONDS.toNanos(secondsToReset));
+        }
+
+        if (statusCode == 429) {
+            if (throttledResponses != null) {
+                throttledResponses.increment();
+            }
+            long retryAfter = headerAsLong(header, "Retry-After");
+            long penalty = retryAfter != UNKNOWN ? TimeUnit.SECONDS.toNanos(retryAfter) : throttledPenaltyNanos;
+            blockedUntilNanos.set(now + penalty);
+            return;
+        }
+
+        // Spread what is left of the quota evenly over the time until it resets
+        long remaining = remaining();
+        long untilReset = resetAtNanos.get() - now;
+        if (remaining == 0 && untilReset > 0) {
+            blockedUntilNanos.set(resetAtNanos.get());
+        } else if (remaining > 0 && untilReset > 0) {
+            intervalNanos.set(Math.max(baseIntervalNanos, untilReset / remaining));
+        } else {
+            intervalNanos.set(baseIntervalNanos);
+        }
+    }
+
+    // True while a 429 or an exhausted quota blocks every call
+    public boolean isBlocked() {
+        return System.nanoTime() - blockedUntilNanos.get() < 0;
+    }
+
+    public long remaining() {
+        long client = clientRemaining.get();
+        long user = userRemaining.get();
+        if (client == UNKNOWN) {
+            return user;
+        }
+        return user == UNKNOWN ? client : Math.min(client, user);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("imgur.rate-limit.remaining", clientRemaining, AtomicLong::get)
+                .tags("client_id", clientId, "quota", "client")
+                .register(registry);
+        Gauge.builder("imgur.rate-limit.remaining", userRemaining, AtomicLong::get)
+                .tags("client_id", clientId, "quota", "user")
+                .register(registry);
+        interactiveShed = Counter.builder("imgur.rate-limit.shed")
+                .tags("client_id", clientId, "priority", "interactive")
+                .register(registry);
+        backgroundShed = Counter.builder("imgur.rate-limit.shed")
+                .tags("client_id", clientId, "priority", "background")
+                .register(registry);
+        throttledResponses = Counter.builder("imgur.rate-limit.throttled")
+                .tag("client_id", clientId)
+                .register(registry);
+    }
+
+    // Returns how long to wait for the reserved permit, or -1 if that would exceed maxWaitNanos
+    private long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long next = nextFreeNanos.get();
+            // Idle time accrues credit for at most a full burst of permits
+            long grantedAt = next - (now - burstNanos) > 0 ? next : now - burstNanos;
+            long waitNanos = Math.max(0, grantedAt - now);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (nextFreeNanos.compareAndSet(next, grantedAt + intervalNanos.get())) {
+                return waitNanos;
+            }
+        }
+    }
+
+    private void shed(Priority priority, String reason) throws ImgurRateLimitException {
+        Counter counter = priority == Priority.INTERACTIVE ? interactiveShed : backgroundShed;
+        if (counter != null) {
+            counter.increment();
+        }
+        throw new ImgurRateLimitException(reason);
+    }
+
+    private static long headerAsLong(Function<String, String> header, String name) {
+        String value = header.apply(name);
+        if (value == null) {
+            return UNKNOWN;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.imgur_app.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.functions.CheckedRunnable;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker, retry and bulkhead around outbound Imgur calls. Instances are configured under
+ * resilience4j.* in application.properties and exposed through the actuator circuitbreakers endpoint.
+ * The bulkheads are the cap on concurrent Imgur calls for both clients; imgur.http.calls reports the
+ * calls holding a permit and those waiting for one.
+ */
+@Component
+public class ImgurResilience implements MeterBinder {
+
+    public enum Operation {
+        UPLOAD("imgurUpload", false),
+        VIEW("imgurView", true),
+        DELETE("imgurDelete", true);
+
+        private final String bulkheadName;
+        private final boolean idempotent;
+
+        Operation(String bulkheadName, boolean idempotent) {
+            this.bulkheadName = bulkheadName;
+            this.idempotent = idempotent;
+        }
+    }
+
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    private final Map<Operation, Bulkhead> bulkheads = new EnumMap<>(Operation.class);
+    // Callers blocked in the bulkhead waiting for a permit, which resilience4j doesn't count
+    private final Map<Operation, AtomicInteger> waiting = new EnumMap<>(Operation.class);
+    // Waits between asynchronous retries without holding a thread
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "imgur-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImgurResilience(CircuitBreakerRegistry circuitBreakerRegistry, RetryRegistry retryRegistry,
+                           BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("imgur");
+        this.retry = retryRegistry.retry("imgurIdempotent");
+        for (Operation operation : Operation.values()) {
+            bulkheads.put(operation, bulkheadRegistry.bulkhead(operation.bulkheadName));
+            waiting.put(operation, new AtomicInteger());
+        }
+    }
+
+    public <T> T call(Operation operation, CheckedSupplier<T> call) throws Exception {
+        return call(operation, () -> {
+        }, call);
+    }
+
+    // beforeAttempt runs ahead of every attempt, retries included, outside the bulkhead and breaker:
+    // ImgurClient takes a rate limit permit there, so waiting for quota holds no bulkhead permit and
+    // a retry is shed rather than sent while the limiter is blocked after a 429
+    public <T> T call(Operation operation, CheckedRunnable beforeAttempt, CheckedSupplier<T> call) throws Exception {
+        // The breaker is innermost so it times only the call itself, not a wait for a bulkhead permit;
+        // retries sit outside the bulkhead so no permit is held between attempts, and every attempt is
+        // recorded by the breaker so an open breaker stops them
+        Bulkhead bulkhead = bulkheads.get(operation);
+        CheckedSupplier<T> guarded = CircuitBreaker.decorateCheckedSupplier(circuitBreaker, call);
+        CheckedSupplier<T> decorated = () -> {
+            beforeAttempt.run();
+            acquirePermission(operation);
+            try {
+                return guarded.get();
+            } finally {
+                bulkhead.onComplete();
+            }
+        };
+        if (operation.idempotent) {
+            decorated = Retry.decorateCheckedSupplier(retry, decorated);
+        }
+        try {
+            return decorated.get();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // Same decoration for calls that return a CompletionStage; permits are released when it completes.
+    // The attempt is sent once beforeAttempt's stage completes, and not at all if it fails.
+    public <T> CompletableFuture<T> callAsync(Operation operation, Supplier<? extends CompletionStage<?>> beforeAttempt,
+                                              Supplier<CompletionStage<T>> call) {
+        Bulkhead bulkhead = bulkheads.get(operation);
+        Supplier<CompletionStage<T>> breaker = CircuitBreaker.decorateCompletionStage(circuitBreaker, call);
+        Supplier<CompletionStage<T>> guarded = () -> {
+            try {
+                acquirePermission(operation);
+            } catch (BulkheadFullException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            try {
+                return breaker.get().whenComplete((value, error) -> bulkhead.onComplete());
+            } catch (RuntimeException | Error e) {
+                bulkhead.onComplete();
+                throw e;
+            }
+        };
+        Supplier<CompletionStage<T>> decorated = () -> {
+            // Relayed by hand rather than with thenCompose, which would wrap failures in a
+            // CompletionException the retry predicate doesn't recognise
+            CompletableFuture<T> attempt = new CompletableFuture<>();
+            beforeAttempt.get().whenComplete((ready, error) -> {
+                if (error != null) {
+                    attempt.completeExceptionally(error);
+                    return;
+                }
+                guarded.get().whenComplete((value, failure) -> {
+                    if (failure != null) {
+                        attempt.completeExceptionally(failure);
+                    } else {
+                        attempt.complete(value);
+                    }
+                });
+            });
+            return attempt;
+        };
+        if (operation.idempotent) {
+            decorated = Retry.decorateCompletionStage(retry, retryScheduler, decorated);
+        }
+        return decorated.get().toCompletableFuture();
+    }
+
+    // Blocks for up to the bulkhead's max wait, counted as waiting; throws BulkheadFullException on timeout
+    private void acquirePermission(Operation operation) {
+        AtomicInteger waitingCalls = waiting.get(operation);
+        waitingCalls.incrementAndGet();
+        try {
+            bulkheads.get(operation).acquirePermission();
+        } finally {
+            waitingCalls.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            Bulkhead.Metrics metrics = bulkheads.get(operation).getMetrics();
+            String tag = operation.name().toLowerCase();
+            Gauge.builder("imgur.http.calls", metrics, m -> m.getMaxAllowedConcurrentCalls() - m.getAvailableConcurrentCalls())
+                    .tags("operation", tag, "state", "running")
+                    .register(registry);
+            Gauge.builder("imgur.http.calls", waiting.get(operation), AtomicInteger::get)
+                    .tags("operation", tag, "state", "waiting")
+                    .register(registry);
+        }
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+}
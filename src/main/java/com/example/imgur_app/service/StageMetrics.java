@@ -0,0 +1,57 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.timing.RequestTiming;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timers for the stages of a request (imgur.app.stage) and for whole operations by outcome and
+ * response status (imgur.app.operation). Percentiles and histogram buckets are switched on per
+ * meter prefix under management.metrics.distribution.* in application.properties. Stage durations
+ * also go to the current request's RequestTiming for the Server-Timing header.
+ */
+@Component
+public class StageMetrics {
+
+    private final MeterRegistry registry;
+
+    public StageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    // Records the stage that just finished and starts timing the next one
+    public Timer.Sample lap(Timer.Sample sample, String operation, String stage) {
+        if (sample != null) {
+            long nanos = sample.stop(Timer.builder("imgur.app.stage")
+                    .tags("operation", operation, "stage", stage)
+                    .register(registry));
+            RequestTiming.record(stage, nanos);
+        }
+        return start();
+    }
+
+    public void finish(Timer.Sample sample, String operation, String outcome, int status) {
+        if (sample != null) {
+            sample.stop(Timer.builder("imgur.app.operation")
+                    .tags("operation", operation, "outcome", outcome, "status", Integer.toString(status))
+                    .register(registry));
+        }
+    }
+
+    // Upload sizes as received ("original") and as sent to Imgur ("processed")
+    public void payload(String kind, long bytes) {
+        if (bytes >= 0) {
+            DistributionSummary.builder("imgur.upload.payload")
+                    .baseUnit("bytes")
+                    .tag("kind", kind)
+                    .register(registry)
+                    .record(bytes);
+        }
+    }
+}
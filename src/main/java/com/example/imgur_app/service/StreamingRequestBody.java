@@ -0,0 +1,75 @@
+package com.example.imgur_app.service;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Request body that streams its content from a file or an input stream instead of a byte array,
+ * so heap use per upload stays constant regardless of the payload size.
+ */
+public abstract class StreamingRequestBody extends RequestBody {
+
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private final long contentLength;
+
+    private StreamingRequestBody(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    // Stream the file through its FileChannel; the body can be replayed since the file stays on disk
+    public static StreamingRequestBody ofPath(Path file, long size) {
+        return new StreamingRequestBody(size) {
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long fileSize = channel.size();
+                    while (position < fileSize) {
+                        long transferred = channel.transferTo(position, fileSize - position, sink);
+                        if (transferred <= 0) {
+                            throw new IOException("File was truncated while uploading: " + file);
+                        }
+                        position += transferred;
+                    }
+                }
+            }
+        };
+    }
+
+    // Stream a one-shot input stream; a negative length sends the body chunked
+    public static StreamingRequestBody ofStream(InputStream inputStream, long size) {
+        return new StreamingRequestBody(size) {
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(inputStream)) {
+                    sink.writeAll(source);
+                }
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public MediaType contentType() {
+        return OCTET_STREAM;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.imgur_app.service;
+
+// Thrown when an upload's leading bytes don't match any supported image format
+public class UnsupportedImageException extends Exception {
+
+    public UnsupportedImageException(String message) {
+        super(message);
+    }
+}
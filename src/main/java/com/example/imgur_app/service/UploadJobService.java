@@ -0,0 +1,202 @@
+package com.example.imgur_app.service;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.UploadJob;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UploadJobRepository;
+import com.example.imgur_app.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+public class UploadJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final UploadJobRepository uploadJobRepository;
+    private final UserRepository userRepository;
+    private final ImageRepository imageRepository;
+    private final ImgurClient imgurClient;
+    private final ImageDeduplicationService deduplicationService;
+    private final ImageProcessor imageProcessor;
+    private final Executor uploadJobExecutor;
+    private final Path spoolDirectory;
+
+    // Jobs currently queued in or running on the executor, so the sweep doesn't dispatch them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public UploadJobService(UploadJobRepository uploadJobRepository, UserRepository userRepository,
+                            ImageRepository imageRepository, ImgurClient imgurClient,
+                            ImageDeduplicationService deduplicationService, ImageProcessor imageProcessor,
+                            @Qualifier("uploadJobExecutor") Executor uploadJobExecutor,
+                            @Value("${imgur.upload.jobs.spool-dir}") String spoolDirectory) {
+        this.uploadJobRepository = uploadJobRepository;
+        this.userRepository = userRepository;
+        this.imageRepository = imageRepository;
+        this.imgurClient = imgurClient;
+        this.deduplicationService = deduplicationService;
+        this.imageProcessor = imageProcessor;
+        this.uploadJobExecutor = uploadJobExecutor;
+        this.spoolDirectory = Path.of(spoolDirectory);
+    }
+
+    public UploadJob submit(MultipartFile image, Long userId) throws IOException, UnsupportedImageException {
+        // Reject non-images before they take up spool space
+        imageProcessor.requireImage(image);
+
+        // Move the multipart temp file into the spool directory so the job survives a restart
+        Files.createDirectories(spoolDirectory);
+        Path spoolFile = Files.createTempFile(spoolDirectory, "upload-", ".bin");
+        image.transferTo(spoolFile);
+
+        UploadJob job = new UploadJob();
+        job.setUserId(userId);
+        job.setSpoolFile(spoolFile.toAbsolutePath().toString());
+        job.setOriginalFilename(image.getOriginalFilename());
+        job.setStatus(UploadJob.Status.QUEUED);
+        uploadJobRepository.save(job);
+
+        dispatch(job.getId());
+        return job;
+    }
+
+    public Optional<UploadJob> findJob(Long id, Long userId) {
+        return uploadJobRepository.findByIdAndUserId(id, userId);
+    }
+
+    // Jobs that were running when the application stopped are queued again
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverJobs() {
+        int recovered = uploadJobRepository.updateStatus(UploadJob.Status.RUNNING, UploadJob.Status.QUEUED);
+        if (recovered > 0) {
+            log.info("Re-queued {} interrupted upload jobs", recovered);
+        }
+        dispatchQueuedJobs();
+    }
+
+    // Pick up jobs that didn't fit in the executor queue or were recovered after a restart
+    @Scheduled(fixedDelayString = "${imgur.upload.jobs.sweep-interval-ms}")
+    public void dispatchQueuedJobs() {
+        for (UploadJob job : uploadJobRepository.findTop100ByStatusOrderByIdAsc(UploadJob.Status.QUEUED)) {
+            if (!dispatch(job.getId())) {
+                break;
+            }
+        }
+    }
+
+    private boolean dispatch(Long jobId) {
+        if (!inFlight.add(jobId)) {
+            return true;
+        }
+        try {
+            uploadJobExecutor.execute(() -> process(jobId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The job stays QUEUED and is retried by the next sweep
+            inFlight.remove(jobId);
+            return false;
+        }
+    }
+
+    void process(Long jobId) {
+        try {
+            // Claimed with a conditional update, so of several workers or nodes racing for a job only one runs it
+            if (uploadJobRepository.transition(jobId, UploadJob.Status.QUEUED, UploadJob.Status.RUNNING, Instant.now()) == 0) {
+                return;
+            }
+            UploadJob job = uploadJobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+
+            Path spoolFile = Path.of(job.getSpoolFile());
+            try {
+                String contentHash;
+                try (InputStream spoolStream = Files.newInputStream(spoolFile)) {
+                    contentHash = deduplicationService.hash(spoolStream);
+                }
+                Optional<ImageSummaryDTO> duplicate =
+                        deduplicationService.findDuplicate(job.getUserId(), contentHash, Files.size(spoolFile));
+                if (duplicate.isPresent()) {
+                    job.setImageId(duplicate.get().getId());
+                } else {
+                    ImgurClient.ImageMetadata metadata = job.getImgurDeleteHash() != null
+                            ? new ImgurClient.ImageMetadata(null, job.getImgurDeleteHash(), job.getImgurLink(), job.getImgurClientId())
+                            : upload(job, spoolFile);
+
+                    Image image = new Image();
+                    image.setDeleteHash(metadata.getDeleteHash());
+                    image.setLink(metadata.getLink());
+                    image.setClientId(metadata.getClientId());
+                    image.setContentHash(contentHash);
+                    image.setUser(userRepository.getReferenceById(job.getUserId()));
+                    imageRepository.save(image);
+
+                    job.setImageId(image.getId());
+                }
+                job.setStatus(UploadJob.Status.COMPLETED);
+            } catch (ImgurRateLimitException e) {
+                // Shed by the rate limiter before anything was sent; a later sweep retries it
+                job.setStatus(UploadJob.Status.QUEUED);
+                uploadJobRepository.save(job);
+                return;
+            } catch (Exception e) {
+                log.warn("Upload job {} failed", jobId, e);
+                job.setErrorMessage(truncate(e.getMessage()));
+                job.setStatus(UploadJob.Status.FAILED);
+            }
+            uploadJobRepository.save(job);
+            deleteSpoolFile(spoolFile);
+        } finally {
+            inFlight.remove(jobId);
+        }
+    }
+
+    // Uploads the spooled image and records the result on the job before the image row is saved:
+    // if the job is run again after a crash in between, it reuses this upload instead of sending another
+    private ImgurClient.ImageMetadata upload(UploadJob job, Path spoolFile) throws Exception {
+        ImgurClient.ImageMetadata metadata;
+        try (ImageProcessor.ProcessedImage processed =
+                     imageProcessor.process(new FileSystemResource(spoolFile), Files.size(spoolFile));
+             InputStream imageStream = processed.getInputStream()) {
+            metadata = imgurClient.uploadImage(imageStream, processed.getSize(), ImgurRateLimiter.Priority.BACKGROUND);
+        }
+        job.setImgurDeleteHash(metadata.getDeleteHash());
+        job.setImgurLink(metadata.getLink());
+        job.setImgurClientId(metadata.getClientId());
+        uploadJobRepository.save(job);
+        return metadata;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spool file {}", spoolFile, e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.imgur_app.timing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stage durations of the request being handled on the current thread. One instance per thread is
+ * reused across requests, so recording a stage allocates nothing. Stages recorded outside a request
+ * (background jobs, batch workers) are ignored. A request that continues asynchronously takes its
+ * instance along (see detach), and callbacks wrapped with propagate record into it from other threads.
+ */
+public final class RequestTiming {
+
+    private static final int MAX_STAGES = 16;
+
+    private static final ThreadLocal<RequestTiming> CURRENT = ThreadLocal.withInitial(RequestTiming::new);
+
+    private final String[] stages = new String[MAX_STAGES];
+    private final long[] durations = new long[MAX_STAGES];
+    private int count;
+    private boolean active;
+    private long startNanos;
+
+    private RequestTiming() {
+    }
+
+    static RequestTiming begin() {
+        RequestTiming timing = CURRENT.get();
+        timing.count = 0;
+        timing.active = true;
+        timing.startNanos = System.nanoTime();
+        return timing;
+    }
+
+    void end() {
+        active = false;
+    }
+
+    // The request went async and keeps this instance; the thread gets a fresh one for its next request
+    void detach() {
+        CURRENT.set(new RequestTiming());
+    }
+
+    // Makes a detached instance the current thread's until restore is called with the returned previous one
+    static RequestTiming bind(RequestTiming timing) {
+        RequestTiming previous = CURRENT.get();
+        CURRENT.set(timing);
+        return previous;
+    }
+
+    static void restore(RequestTiming previous) {
+        CURRENT.set(previous);
+    }
+
+    // Wraps a completion callback so the stages it records count towards the request that created it,
+    // whichever thread runs it. Outside a request the callback is returned as is.
+    public static <T, R> Function<T, R> propagate(Function<T, R> callback) {
+        RequestTiming timing = CURRENT.get();
+        if (!timing.active) {
+            return callback;
+        }
+        return value -> {
+            RequestTiming previous = bind(timing);
+            try {
+                return callback.apply(value);
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    // Adds to the stage's total for the current request; repeated stages are summed
+    public static void record(String stage, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing.active) {
+            timing.add(stage, nanos);
+        }
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    // e.g. "user-lookup;dur=1.2, password-verify;dur=71.9, total;dur=80.4"
+    String serverTimingHeader(long totalNanos) {
+        StringBuilder header = new StringBuilder(32 + count * 24);
+        for (int i = 0; i < count; i++) {
+            appendMetric(header, stages[i], durations[i]).append(", ");
+        }
+        return appendMetric(header, "total", totalNanos).toString();
+    }
+
+    Map<String, Double> snapshot() {
+        Map<String, Double> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            snapshot.put(stages[i], toMillis(durations[i]));
+        }
+        return snapshot;
+    }
+
+    static double toMillis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private void add(String stage, long nanos) {
+        for (int i = 0; i < count; i++) {
+            if (stages[i].equals(stage)) {
+                durations[i] += nanos;
+                return;
+            }
+        }
+        if (count < MAX_STAGES) {
+            stages[count] = stage;
+            durations[count] = nanos;
+            count++;
+        }
+    }
+
+    private static StringBuilder appendMetric(StringBuilder header, String name, long nanos) {
+        return header.append(name).append(";dur=").append(toMillis(nanos));
+    }
+}
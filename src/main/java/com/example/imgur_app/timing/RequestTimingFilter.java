@@ -0,0 +1,95 @@
+package com.example.imgur_app.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Collects the stage timings of each request, reports them in a Server-Timing response header and
+ * hands slow requests to the SlowRequestLog. Runs ahead of Spring Security so authentication is included.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+    private static final String UNMATCHED_ROUTE = "(unmatched)";
+    private static final String TIMING_ATTRIBUTE = RequestTimingFilter.class.getName() + ".timing";
+
+    private final SlowRequestLog slowRequestLog;
+    private final boolean serverTimingHeader;
+
+    public RequestTimingFilter(SlowRequestLog slowRequestLog,
+                               @Value("${imgur.request-timing.server-timing-header}") boolean serverTimingHeader) {
+        this.slowRequestLog = slowRequestLog;
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    // Requests that went async are finished on their async dispatch, once the response is produced
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming detached = (RequestTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        RequestTiming previous = detached != null ? RequestTiming.bind(detached) : null;
+        RequestTiming timing = detached != null ? detached : RequestTiming.begin();
+        // Headers can't be added once the body starts going out, so the header is set just before that
+        HttpServletResponse timedResponse = !serverTimingHeader ? response : new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                setHeader(SERVER_TIMING, timing.serverTimingHeader(timing.elapsedNanos()));
+            }
+        };
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Stages recorded by the async work and the total up to the response are reported on the async dispatch
+                request.setAttribute(TIMING_ATTRIBUTE, timing);
+                if (detached == null) {
+                    timing.detach();
+                }
+            } else {
+                request.removeAttribute(TIMING_ATTRIBUTE);
+                finish(request, response, timing);
+            }
+            if (previous != null) {
+                RequestTiming.restore(previous);
+            }
+        }
+    }
+
+    private void finish(HttpServletRequest request, HttpServletResponse response, RequestTiming timing) {
+        long totalNanos = timing.elapsedNanos();
+        if (serverTimingHeader && !response.isCommitted()) {
+            response.setHeader(SERVER_TIMING, timing.serverTimingHeader(totalNanos));
+        }
+        if (slowRequestLog.wouldKeep(totalNanos)) {
+            slowRequestLog.offer(totalNanos, new SlowRequestLog.SlowRequest(Instant.now(), request.getMethod(),
+                    route(request), response.getStatus(), RequestTiming.toMillis(totalNanos), timing.snapshot()));
+        }
+        timing.end();
+    }
+
+    // The matched route, e.g. /api/images/{deleteHash}. Raw paths carry delete hashes and other
+    // per-user values that must not be readable from the log.
+    static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNMATCHED_ROUTE;
+    }
+}
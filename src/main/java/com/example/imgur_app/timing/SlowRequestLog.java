@@ -0,0 +1,100 @@
+package com.example.imgur_app.timing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The slowest requests since startup (or the last reset), in a fixed array of slots updated with
+ * compare-and-set. Requests faster than the current floor are rejected with a single volatile read,
+ * so the common case neither locks nor allocates.
+ */
+@Component
+public class SlowRequestLog {
+
+    public record SlowRequest(Instant at, String method, String path, int status, double totalMillis,
+                              Map<String, Double> stagesMillis) {
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    // Duration of the fastest kept request once every slot is used; 0 while there is room
+    private volatile long floorNanos;
+
+    public SlowRequestLog(@Value("${imgur.request-timing.slow-requests}") int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    public boolean wouldKeep(long totalNanos) {
+        return totalNanos > floorNanos;
+    }
+
+    public void offer(long totalNanos, SlowRequest request) {
+        Entry entry = new Entry(totalNanos, request);
+        while (totalNanos > floorNanos) {
+            // Replace an empty slot, or else the fastest kept request
+            int victimIndex = 0;
+            Entry victim = null;
+            for (int i = 0; i < slots.length(); i++) {
+                Entry current = slots.get(i);
+                if (current == null) {
+                    victimIndex = i;
+                    victim = null;
+                    break;
+                }
+                if (victim == null || current.nanos < victim.nanos) {
+                    victimIndex = i;
+                    victim = current;
+                }
+            }
+            if (victim != null && totalNanos <= victim.nanos) {
+                return;
+            }
+            if (slots.compareAndSet(victimIndex, victim, entry)) {
+                updateFloor();
+                return;
+            }
+        }
+    }
+
+    public List<SlowRequest> slowest() {
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Entry entry = slots.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.nanos).reversed());
+        return entries.stream().map(entry -> entry.request).toList();
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        floorNanos = 0;
+    }
+
+    // Racy by design: a stale floor only lets a few extra requests through to the full scan
+    private void updateFloor() {
+        long floor = Long.MAX_VALUE;
+        for (int i = 0; i < slots.length(); i++) {
+            Entry entry = slots.get(i);
+            if (entry == null) {
+                floorNanos = 0;
+                return;
+            }
+            floor = Math.min(floor, entry.nanos);
+        }
+        floorNanos = floor;
+    }
+
+    private record Entry(long nanos, SlowRequest request) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.security.AccessTokenService;
+import com.example.imgur_app.security.AccessTokenService.AccessToken;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokenServiceTest {
+
+	private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+	@Test
+	void testIssuedToken_Verifies() {
+		AccessTokenService service = new AccessTokenService(SECRET, Duration.ofMinutes(15));
+		AccessToken token = service.issue(42L, "test:user");
+
+		Optional<AccessToken> verified = service.verify(token.getValue());
+
+		assertTrue(verified.isPresent());
+		assertEquals(42L, verified.get().getUserId());
+		assertEquals("test:user", verified.get().getUsername());
+	}
+
+	@Test
+	void testTamperedToken_Rejected() {
+		AccessTokenService service = new AccessTokenService(SECRET, Duration.ofMinutes(15));
+		String token = service.issue(42L, "testuser").getValue();
+		String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("1:9999999999:admin".getBytes());
+
+		assertTrue(service.verify(forgedPayload + token.substring(token.indexOf('.'))).isEmpty());
+		assertTrue(service.verify("not-a-token").isEmpty());
+	}
+
+	@Test
+	void testExpiredToken_Rejected() {
+		AccessTokenService service = new AccessTokenService(SECRET, Duration.ofSeconds(-1));
+		String token = service.issue(42L, "testuser").getValue();
+
+		assertTrue(service.verify(token).isEmpty());
+	}
+}
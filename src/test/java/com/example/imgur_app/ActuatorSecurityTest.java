@@ -0,0 +1,62 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.entity.User;
+import com.example.imgur_app.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "imgur.admin.password={noop}admin-secret")
+@AutoConfigureMockMvc
+@AutoConfigureObservability // Registers the Prometheus endpoint, which tests leave out by default
+class ActuatorSecurityTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Test
+	void testActuator_RejectsApplicationUsers() throws Exception {
+		String username = "actuator-" + UUID.randomUUID();
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword(passwordEncoder.encode("password123"));
+		userRepository.save(user);
+
+		mockMvc.perform(get("/actuator/slowrequests").with(httpBasic(username, "password123")))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(delete("/actuator/slowrequests").with(httpBasic(username, "password123")))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic(username, "password123")))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void testActuator_RequiresCredentials() throws Exception {
+		mockMvc.perform(get("/actuator/slowrequests")).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void testActuator_AllowsAdmin() throws Exception {
+		mockMvc.perform(get("/actuator/slowrequests").with(httpBasic("admin", "admin-secret")))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "admin-secret")))
+				.andExpect(status().isOk());
+	}
+}
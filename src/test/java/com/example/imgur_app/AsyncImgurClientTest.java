@@ -0,0 +1,147 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.AsyncImgurClient;
+import com.example.imgur_app.service.ImgurApiException;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurCredentialPool;
+import com.example.imgur_app.service.ImgurFailurePredicate;
+import com.example.imgur_app.service.ImgurRateLimitException;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.example.imgur_app.service.ImgurResilience;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.FileNotFoundException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs AsyncImgurClient against a local stub server
+class AsyncImgurClientTest {
+
+	private MockWebServer server;
+	private ExecutorService executor;
+	private AsyncImgurClient asyncImgurClient;
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+
+		ImgurResilience resilience = new ImgurResilience(
+				CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+						.recordException(new ImgurFailurePredicate())
+						.build()),
+				RetryRegistry.of(RetryConfig.custom()
+						.maxAttempts(3)
+						.waitDuration(Duration.ofMillis(10))
+						.retryOnException(new ImgurFailurePredicate())
+						.build()),
+				BulkheadRegistry.ofDefaults());
+		ImgurCredentialPool credentialPool = new ImgurCredentialPool(List.of("test-client"), 1000, 100, 0,
+				Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+		executor = Executors.newFixedThreadPool(2);
+		registry = new SimpleMeterRegistry();
+		asyncImgurClient = new AsyncImgurClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+				new ObjectMapper(), resilience, credentialPool, registry, executor);
+		ReflectionTestUtils.setField(asyncImgurClient, "baseUrl", server.url("/3").toString());
+		ReflectionTestUtils.setField(asyncImgurClient, "requestTimeout", Duration.ofSeconds(5));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		executor.shutdownNow();
+		server.shutdown();
+	}
+
+	@Test
+	void testUpload_SendsFileAsMultipartAndParsesResponse(@TempDir Path directory) throws Exception {
+		server.enqueue(new MockResponse().setBody(
+				"{\"data\":{\"id\":\"abc\",\"deletehash\":\"del123\",\"link\":\"https://i.imgur.com/abc.png\"},\"success\":true}"));
+		Path imageFile = Files.writeString(directory.resolve("image.bin"), "image-bytes");
+
+		ImgurClient.ImageMetadata metadata = asyncImgurClient.uploadImage(imageFile, ImgurRateLimiter.Priority.INTERACTIVE)
+				.get(5, TimeUnit.SECONDS);
+
+		assertEquals("del123", metadata.getDeleteHash());
+		assertEquals("test-client", metadata.getClientId());
+		RecordedRequest request = server.takeRequest();
+		assertEquals("Client-ID test-client", request.getHeader("Authorization"));
+		assertTrue(request.getHeader("Content-Type").startsWith("multipart/form-data; boundary="));
+		// The file's length is known up front, so the body is not chunked
+		assertEquals(request.getBodySize(), Long.parseLong(request.getHeader("Content-Length")));
+		assertTrue(request.getBody().readUtf8().contains("image-bytes"));
+		assertEquals(1, registry.get("imgur.client.requests").tags("method", "upload", "outcome", "success").timer().count());
+	}
+
+	@Test
+	void testUpload_MissingFileFailsWithoutSending(@TempDir Path directory) {
+		ExecutionException e = assertThrows(ExecutionException.class, () ->
+				asyncImgurClient.uploadImage(directory.resolve("missing.bin"), ImgurRateLimiter.Priority.INTERACTIVE)
+						.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(FileNotFoundException.class, e.getCause());
+		assertEquals(0, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_RetriedOnServerError() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(503));
+		server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+		asyncImgurClient.deleteImage("deleteHash123", null, ImgurRateLimiter.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_ThrottledNotRetriedWhileLimiterBlocked() {
+		server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+		server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+		ExecutionException e = assertThrows(ExecutionException.class, () ->
+				asyncImgurClient.deleteImage("deleteHash123", null, ImgurRateLimiter.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+		assertInstanceOf(ImgurRateLimitException.class, e.getCause());
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_RemovedClientIdFailsWithoutSending() {
+		ExecutionException e = assertThrows(ExecutionException.class, () ->
+				asyncImgurClient.deleteImage("deleteHash123", "removed", ImgurRateLimiter.Priority.INTERACTIVE).get(5, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+		assertEquals(0, server.getRequestCount());
+	}
+
+	@Test
+	void testView_NotFoundFailsWithApiException() {
+		server.enqueue(new MockResponse().setResponseCode(404));
+
+		ExecutionException e = assertThrows(ExecutionException.class, () ->
+				asyncImgurClient.viewImage("missing").get(5, TimeUnit.SECONDS));
+		assertInstanceOf(ImgurApiException.class, e.getCause());
+		assertEquals(404, ((ImgurApiException) e.getCause()).getStatusCode());
+		assertEquals(1, server.getRequestCount());
+	}
+}
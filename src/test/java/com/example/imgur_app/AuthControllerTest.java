@@ -0,0 +1,68 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.controller.AuthController;
+import com.example.imgur_app.exception.GlobalExceptionHandler;
+import com.example.imgur_app.security.AccessTokenService;
+import com.example.imgur_app.security.AuthenticatedUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTest {
+
+	private AuthenticationManager authenticationManager;
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		authenticationManager = mock(AuthenticationManager.class);
+		AccessTokenService accessTokenService = new AccessTokenService(
+				Base64.getEncoder().encodeToString(new byte[32]), Duration.ofMinutes(15));
+		mockMvc = MockMvcBuilders.standaloneSetup(new AuthController(authenticationManager, accessTokenService))
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void testIssueToken_BlankUsernameRejected() throws Exception {
+		mockMvc.perform(post("/api/auth/token").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\" \",\"password\":\"password123\"}"))
+				.andExpect(status().isBadRequest());
+
+		verifyNoInteractions(authenticationManager);
+	}
+
+	@Test
+	void testIssueToken_MissingPasswordRejected() throws Exception {
+		mockMvc.perform(post("/api/auth/token").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"testuser\"}"))
+				.andExpect(status().isBadRequest());
+
+		verifyNoInteractions(authenticationManager);
+	}
+
+	@Test
+	void testIssueToken_ValidCredentials() throws Exception {
+		AuthenticatedUser user = new AuthenticatedUser(1L, "testuser", null);
+		when(authenticationManager.authenticate(any())).thenReturn(
+				UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+		mockMvc.perform(post("/api/auth/token").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"testuser\",\"password\":\"password123\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.expiresIn").value(900));
+	}
+}
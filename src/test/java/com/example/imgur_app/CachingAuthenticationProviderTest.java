@@ -0,0 +1,91 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.security.CachingAuthenticationProvider;
+import com.example.imgur_app.security.CredentialCache;
+import com.example.imgur_app.security.UserCacheInvalidationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingAuthenticationProviderTest {
+
+	private AuthenticationProvider delegate;
+	private CredentialCache credentialCache;
+	private CachingAuthenticationProvider provider;
+
+	@BeforeEach
+	void setUp() {
+		delegate = mock(AuthenticationProvider.class);
+		credentialCache = new CredentialCache(Duration.ofMinutes(5), 100);
+		provider = new CachingAuthenticationProvider(delegate, credentialCache);
+
+		UserDetails user = User.withUsername("testuser").password("{noop}password").build();
+		when(delegate.authenticate(argThat(a -> a != null && "password".equals(a.getCredentials()))))
+				.thenReturn(UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+		when(delegate.authenticate(argThat(a -> a != null && !"password".equals(a.getCredentials()))))
+				.thenThrow(new BadCredentialsException("Bad credentials"));
+	}
+
+	@Test
+	void testSecondAuthentication_SkipsDelegate() {
+		provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+		Authentication result = provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+
+		assertTrue(result.isAuthenticated());
+		assertEquals("testuser", result.getName());
+		verify(delegate, times(1)).authenticate(any());
+	}
+
+	@Test
+	void testWrongPassword_NotServedFromCache() {
+		provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+
+		assertThrows(BadCredentialsException.class, () ->
+				provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "wrong")));
+		verify(delegate, times(2)).authenticate(any());
+	}
+
+	@Test
+	void testInvalidate_ForcesFullAuthentication() {
+		provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+		credentialCache.invalidate("testuser");
+		provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+
+		verify(delegate, times(2)).authenticate(any());
+	}
+
+	@Test
+	void testUserChange_EvictsAgainAfterCommit() {
+		com.example.imgur_app.entity.User changed = new com.example.imgur_app.entity.User();
+		changed.setUsername("testuser");
+		UserCacheInvalidationListener listener = new UserCacheInvalidationListener(
+				new StaticListableBeanFactory(Map.of("credentialCache", credentialCache)).getBeanProvider(CredentialCache.class));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			listener.invalidate(changed);
+			// A login between the flush and the commit caches the old password again
+			provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("testuser", "password"));
+			TransactionSynchronizationUtils.triggerAfterCommit();
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertNull(credentialCache.lookup("testuser", "password"));
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.BatchUploadResultDTO;
+import com.example.imgur_app.dto.BulkDeleteResultDTO;
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.service.ImageBatchService;
+import com.example.imgur_app.service.ImageContentCache;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import com.example.imgur_app.service.ImageDeletionService;
+import com.example.imgur_app.service.ImageMetadataCache;
+import com.example.imgur_app.service.ImageProcessor;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.example.imgur_app.service.UnsupportedImageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageBatchServiceTest {
+
+	private ImgurClient imgurClient;
+	private ImageRepository imageRepository;
+	private ImageMetadataCache metadataCache;
+	private ImageContentCache contentCache;
+	private ImageDeletionService imageDeletionService;
+	private ImageDeduplicationService deduplicationService;
+	private ImageProcessor imageProcessor;
+	private ImageBatchService imageBatchService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		imgurClient = mock(ImgurClient.class);
+		imageRepository = mock(ImageRepository.class);
+		metadataCache = mock(ImageMetadataCache.class);
+		contentCache = mock(ImageContentCache.class);
+		imageDeletionService = mock(ImageDeletionService.class);
+		deduplicationService = mock(ImageDeduplicationService.class);
+		imageProcessor = mock(ImageProcessor.class);
+		// Run the fan-out inline so the test is deterministic; batches hold at most 3 files
+		imageBatchService = new ImageBatchService(imgurClient, mock(UserRepository.class), imageRepository,
+				deduplicationService, metadataCache, contentCache, imageProcessor, imageDeletionService, Runnable::run, 3);
+
+		// Files are hashed to their content, pass through processing unchanged and upload as id-<content>
+		when(deduplicationService.hash(any())).thenAnswer(invocation ->
+				new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.US_ASCII));
+		when(imageProcessor.process(any(), anyLong())).thenAnswer(invocation ->
+				ImageProcessor.ProcessedImage.unchanged(invocation.getArgument(0), invocation.<Long>getArgument(1)));
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong(), eq(ImgurRateLimiter.Priority.BACKGROUND)))
+				.thenAnswer(invocation -> {
+					String content = new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.US_ASCII);
+					if (content.equals("imgur-error")) {
+						throw new Exception("Failed to upload image: Bad Gateway");
+					}
+					return new ImgurClient.ImageMetadata("id-" + content, "hash-" + content,
+							"https://i.imgur.com/" + content + ".png", "client-a");
+				});
+		// Ids are assigned in insert order, starting at 100
+		when(imageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+			List<Image> images = invocation.getArgument(0);
+			for (int i = 0; i < images.size(); i++) {
+				images.get(i).setId(100L + i);
+			}
+			return images;
+		});
+	}
+
+	@Test
+	void testUploadAll_ResultsFollowFileOrder() throws Exception {
+		doThrow(new UnsupportedImageException("Not an image")).when(imageProcessor).requireImage(argThat(file ->
+				"notes.txt".equals(((MultipartFile) file).getOriginalFilename())));
+
+		List<BatchUploadResultDTO> results = imageBatchService.uploadAll(List.of(
+				file("notes.txt", "text"), file("a.png", "a"), file("broken.png", "imgur-error")), 1L);
+
+		// Failures keep their slots, so the one stored image maps back to the second file
+		assertEquals(List.of("notes.txt", "a.png", "broken.png"),
+				results.stream().map(BatchUploadResultDTO::getFilename).toList());
+		assertEquals(BatchUploadResultDTO.Status.FAILED, results.get(0).getStatus());
+		assertEquals("Not an image", results.get(0).getError());
+		assertEquals(BatchUploadResultDTO.Status.UPLOADED, results.get(1).getStatus());
+		assertEquals(100L, results.get(1).getImageId());
+		assertEquals("hash-a", results.get(1).getDeleteHash());
+		assertEquals(BatchUploadResultDTO.Status.FAILED, results.get(2).getStatus());
+		assertTrue(results.get(2).getError().contains("Bad Gateway"));
+		verify(imageRepository).saveAll(argThat(images -> images instanceof List<Image> list
+				&& list.size() == 1 && list.get(0).getDeleteHash().equals("hash-a")));
+	}
+
+	@Test
+	void testUploadAll_DuplicateReturnsEarlierImage() throws Exception {
+		when(deduplicationService.findDuplicate(1L, "same", 4)).thenReturn(
+				Optional.of(new ImageSummaryDTO(7L, "https://i.imgur.com/same.png", "hash-same")));
+
+		List<BatchUploadResultDTO> results = imageBatchService.uploadAll(List.of(file("again.png", "same"), file("b.png", "b")), 1L);
+
+		assertEquals(BatchUploadResultDTO.Status.UPLOADED, results.get(0).getStatus());
+		assertEquals(7L, results.get(0).getImageId());
+		assertEquals("hash-same", results.get(0).getDeleteHash());
+		assertEquals(100L, results.get(1).getImageId());
+		verify(imgurClient, times(1)).uploadImage(any(InputStream.class), anyLong(), any());
+	}
+
+	@Test
+	void testUploadAll_RejectsOversizedBatch() {
+		List<MultipartFile> files = List.of(file("1.png", "1"), file("2.png", "2"), file("3.png", "3"), file("4.png", "4"));
+
+		assertThrows(IllegalArgumentException.class, () -> imageBatchService.uploadAll(files, 1L));
+
+		verifyNoInteractions(imgurClient, imageRepository);
+	}
+
+	@Test
+	void testUploadAll_QueuesImgurDeletesWhenSaveFails() throws Exception {
+		when(imageRepository.saveAll(anyList())).thenThrow(new DataAccessResourceFailureException("Database down"));
+
+		List<BatchUploadResultDTO> results = imageBatchService.uploadAll(List.of(file("a.png", "a"), file("b.png", "b")), 1L);
+
+		// Both uploads are reported as failed and deleted from Imgur through the outbox
+		assertTrue(results.stream().allMatch(result -> result.getStatus() == BatchUploadResultDTO.Status.FAILED));
+		assertTrue(results.get(0).getError().contains("Database down"));
+		verify(imageDeletionService).deleteUnsaved(argThat(uploads -> uploads.stream()
+				.map(ImageSummaryDTO::getDeleteHash).toList().equals(List.of("hash-a", "hash-b"))
+				&& uploads.stream().allMatch(upload -> "client-a".equals(upload.getClientId()))), eq(1L));
+	}
+
+	private static MultipartFile file(String filename, String content) {
+		return new MockMultipartFile("images", filename, "image/png", content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void testDeleteAll_QueuesOwnedImagesWithoutCallingImgur() {
+		// Mock ownership query: hashC is not owned by the caller
+		ImageSummaryDTO imageA = new ImageSummaryDTO(10L, "https://imgur.com/a", "hashA");
+		ImageSummaryDTO imageB = new ImageSummaryDTO(11L, "https://imgur.com/b", "hashB", "client-b");
+		when(imageRepository.findSummariesByDeleteHashInAndUserId(anyCollection(), eq(1L))).thenReturn(List.of(imageA, imageB));
+
+		// Call deleteAll
+		List<BulkDeleteResultDTO> results = imageBatchService.deleteAll(List.of("hashA", "hashB", "hashC"), 1L);
+
+		// Owned rows are removed and queued together; Imgur is left to the outbox dispatcher
+		verify(imageDeletionService).deleteAll(argThat(images -> images.size() == 2
+				&& images.containsAll(List.of(imageA, imageB))), eq(1L));
+		verify(metadataCache).invalidateAll(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(10L, 11L))));
+		verify(contentCache).invalidateAll(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(10L, 11L))));
+		verifyNoInteractions(imgurClient);
+		assertEquals(BulkDeleteResultDTO.Status.DELETED, results.get(0).getStatus());
+		assertEquals(BulkDeleteResultDTO.Status.DELETED, results.get(1).getStatus());
+		assertEquals(BulkDeleteResultDTO.Status.NOT_FOUND, results.get(2).getStatus());
+	}
+}
@@ -0,0 +1,107 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImageContentCache;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import com.example.imgur_app.service.ImgurClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ImageContentCacheTest {
+
+	@TempDir
+	Path cacheDirectory;
+
+	private ImgurClient imgurClient;
+	private ImageContentCache contentCache;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		imgurClient = mock(ImgurClient.class);
+		ImageDeduplicationService hasher = new ImageDeduplicationService(null, new SimpleMeterRegistry());
+		contentCache = new ImageContentCache(imgurClient, hasher, cacheDirectory.toString(),
+				DataSize.ofMegabytes(1), Duration.ZERO);
+	}
+
+	@Test
+	void testConcurrentMisses_ShareOneDownload() throws Exception {
+		CountDownLatch downloadStarted = new CountDownLatch(1);
+		CountDownLatch releaseDownload = new CountDownLatch(1);
+		when(imgurClient.downloadImage(eq("https://i.imgur.com/a.png"), any(Path.class))).thenAnswer(invocation -> {
+			downloadStarted.countDown();
+			releaseDownload.await(5, TimeUnit.SECONDS);
+			Files.write(invocation.getArgument(1), new byte[]{1, 2, 3});
+			return "image/png";
+		});
+
+		CompletableFuture<ImageContentCache.CachedContent> first =
+				CompletableFuture.supplyAsync(() -> get(1L, "https://i.imgur.com/a.png"));
+		assertTrue(downloadStarted.await(5, TimeUnit.SECONDS));
+		CompletableFuture<ImageContentCache.CachedContent> second =
+				CompletableFuture.supplyAsync(() -> get(1L, "https://i.imgur.com/a.png"));
+		releaseDownload.countDown();
+
+		ImageContentCache.CachedContent content = first.get(5, TimeUnit.SECONDS);
+		assertSame(content, second.get(5, TimeUnit.SECONDS));
+		assertEquals(3, content.getSize());
+		assertEquals("image/png", content.getContentType());
+		assertTrue(content.getEtag().startsWith("\""));
+		verify(imgurClient, times(1)).downloadImage(any(), any());
+	}
+
+	@Test
+	void testFailedDownload_NotCached() throws Exception {
+		when(imgurClient.downloadImage(any(), any(Path.class)))
+				.thenThrow(new Exception("Failed to download image: Bad Gateway"))
+				.thenAnswer(invocation -> {
+					Files.write(invocation.getArgument(1), new byte[]{1});
+					return "image/jpeg";
+				});
+
+		assertThrows(Exception.class, () -> contentCache.get(2L, "https://i.imgur.com/b.jpg"));
+		assertEquals(1, contentCache.get(2L, "https://i.imgur.com/b.jpg").getSize());
+	}
+
+	@Test
+	void testInvalidate_DeletesCachedFile() throws Exception {
+		when(imgurClient.downloadImage(any(), any(Path.class))).thenAnswer(invocation -> {
+			Files.write(invocation.getArgument(1), new byte[]{1, 2});
+			return "image/png";
+		});
+		Path cached = contentCache.get(3L, "https://i.imgur.com/c.png").getFile();
+		assertTrue(Files.exists(cached));
+
+		contentCache.invalidate(3L);
+
+		// Removal runs on the cache's executor after the (here zero) grace period
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (Files.exists(cached) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertFalse(Files.exists(cached));
+		contentCache.get(3L, "https://i.imgur.com/c.png");
+		verify(imgurClient, times(2)).downloadImage(any(), any());
+	}
+
+	private ImageContentCache.CachedContent get(Long imageId, String link) {
+		try {
+			return contentCache.get(imageId, link);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ImageDeduplicationServiceTest {
+
+	private ImageRepository imageRepository;
+	private SimpleMeterRegistry registry;
+	private ImageDeduplicationService deduplicationService;
+
+	@BeforeEach
+	void setUp() {
+		imageRepository = mock(ImageRepository.class);
+		registry = new SimpleMeterRegistry();
+		deduplicationService = new ImageDeduplicationService(imageRepository, registry);
+	}
+
+	@Test
+	void testHash_Sha256Hex() throws Exception {
+		String hash = deduplicationService.hash(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII)));
+
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+	}
+
+	@Test
+	void testFindDuplicate_CountsHitsAndMisses() {
+		when(imageRepository.findSummariesByUserIdAndContentHash(eq(1L), eq("known"), any()))
+				.thenReturn(List.of(new ImageSummaryDTO(5L, "https://imgur.com/a", "hashA")));
+		when(imageRepository.findSummariesByUserIdAndContentHash(eq(1L), eq("new"), any()))
+				.thenReturn(List.of());
+
+		assertTrue(deduplicationService.findDuplicate(1L, "known", 1024).isPresent());
+		assertTrue(deduplicationService.findDuplicate(1L, "new", 2048).isEmpty());
+
+		assertEquals(1.0, registry.get("imgur.upload.dedup").tag("result", "hit").counter().count());
+		assertEquals(1.0, registry.get("imgur.upload.dedup").tag("result", "miss").counter().count());
+		assertEquals(1024.0, registry.get("imgur.upload.dedup.saved").counter().count());
+	}
+}
@@ -0,0 +1,155 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.ImageDeletion;
+import com.example.imgur_app.repository.ImageDeletionRepository;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.service.ImageDeletionService;
+import com.example.imgur_app.service.ImgurApiException;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurRateLimitException;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageDeletionServiceTest {
+
+	private ImageRepository imageRepository;
+	private ImageDeletionRepository deletionRepository;
+	private ImgurClient imgurClient;
+	private SimpleMeterRegistry registry;
+	private ImageDeletionService deletionService;
+
+	@BeforeEach
+	void setUp() {
+		imageRepository = mock(ImageRepository.class);
+		deletionRepository = mock(ImageDeletionRepository.class);
+		imgurClient = mock(ImgurClient.class);
+		registry = new SimpleMeterRegistry();
+		// Run the fan-out inline so the test is deterministic
+		deletionService = new ImageDeletionService(imageRepository, deletionRepository, imgurClient,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run, registry,
+				50, 3, Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofDays(7));
+	}
+
+	@Test
+	void testDelete_QueuesImgurDeleteWithUploadingClientId() {
+		when(imageRepository.deleteByIdAndUserId(5L, 1L)).thenReturn(1);
+
+		assertTrue(deletionService.delete(new ImageSummaryDTO(5L, "https://imgur.com/a", "hashA", "client-a"), 1L));
+
+		verify(deletionRepository).save(argThat(deletion -> deletion.getImageId() == 5L
+				&& deletion.getDeleteHash().equals("hashA")
+				&& "client-a".equals(deletion.getClientId())
+				&& deletion.getStatus() == ImageDeletion.Status.PENDING));
+		verifyNoInteractions(imgurClient);
+	}
+
+	@Test
+	void testDelete_NothingQueuedWhenRowAlreadyGone() {
+		when(imageRepository.deleteByIdAndUserId(5L, 1L)).thenReturn(0);
+
+		assertFalse(deletionService.delete(new ImageSummaryDTO(5L, "https://imgur.com/a", "hashA"), 1L));
+
+		verify(deletionRepository, never()).save(any());
+	}
+
+	@Test
+	void testDeleteUnsaved_QueuesUploadsWithoutImageRow() {
+		deletionService.deleteUnsaved(List.of(new ImageSummaryDTO(null, "https://imgur.com/a", "hashA", "client-a")), 1L);
+
+		verify(deletionRepository).saveAll(argThat(deletions -> deletions instanceof List<ImageDeletion> list
+				&& list.size() == 1 && list.get(0).getImageId() == null && list.get(0).getDeleteHash().equals("hashA")));
+		verify(imageRepository, never()).deleteAllByIdInAndUserId(any(), any());
+	}
+
+	@Test
+	void testDispatchPending_RecordsResults() throws Exception {
+		ImageDeletion deleted = pending(1L, "hashA", 0);
+		ImageDeletion gone = pending(2L, "hashB", 0);
+		ImageDeletion retried = pending(3L, "hashC", 0);
+		ImageDeletion failed = pending(4L, "hashD", 2);
+		List<ImageDeletion> batch = List.of(deleted, gone, retried, failed);
+		when(deletionRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+				eq(ImageDeletion.Status.PENDING), any(), any(Limit.class))).thenReturn(batch);
+		when(deletionRepository.findAllById(any())).thenReturn(batch);
+		when(imgurClient.deleteImage("hashB", null, ImgurRateLimiter.Priority.BACKGROUND))
+				.thenThrow(new ImgurApiException("Failed to delete image: Not Found", 404));
+		when(imgurClient.deleteImage("hashC", null, ImgurRateLimiter.Priority.BACKGROUND))
+				.thenThrow(new ImgurApiException("Failed to delete image: Bad Gateway", 502));
+		when(imgurClient.deleteImage("hashD", null, ImgurRateLimiter.Priority.BACKGROUND))
+				.thenThrow(new ImgurApiException("Failed to delete image: Bad Gateway", 502));
+
+		Instant before = Instant.now();
+		deletionService.dispatchPending();
+
+		assertEquals(ImageDeletion.Status.DELETED, deleted.getStatus());
+		assertEquals(ImageDeletion.Status.DELETED, gone.getStatus());
+		assertEquals(ImageDeletion.Status.PENDING, retried.getStatus());
+		assertEquals(1, retried.getAttempts());
+		assertFalse(retried.getNextAttemptAt().isBefore(before.plusSeconds(10)));
+		// The third attempt was the last one
+		assertEquals(ImageDeletion.Status.FAILED, failed.getStatus());
+		assertEquals(3, failed.getAttempts());
+		assertEquals(1.0, registry.get("imgur.delete.outbox").tag("result", "retry").counter().count());
+	}
+
+	@Test
+	void testDispatchPending_ShedDeleteKeepsItsAttempts() throws Exception {
+		ImageDeletion deferred = pending(1L, "hashA", 1);
+		List<ImageDeletion> batch = List.of(deferred);
+		when(deletionRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+				eq(ImageDeletion.Status.PENDING), any(), any(Limit.class))).thenReturn(batch);
+		when(deletionRepository.findAllById(any())).thenReturn(batch);
+		when(imgurClient.deleteImage("hashA", null, ImgurRateLimiter.Priority.BACKGROUND))
+				.thenThrow(new ImgurRateLimitException("Imgur quota reserved for interactive requests"));
+
+		deletionService.dispatchPending();
+
+		assertEquals(ImageDeletion.Status.PENDING, deferred.getStatus());
+		assertEquals(1, deferred.getAttempts());
+		assertEquals(1.0, registry.get("imgur.delete.outbox").tag("result", "deferred").counter().count());
+	}
+
+	@Test
+	void testDispatchPending_RemovedClientIdFailsWithoutRetry() throws Exception {
+		ImageDeletion failed = pending(1L, "hashA", 0);
+		failed.setClientId("removed");
+		List<ImageDeletion> batch = List.of(failed);
+		when(deletionRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+				eq(ImageDeletion.Status.PENDING), any(), any(Limit.class))).thenReturn(batch);
+		when(deletionRepository.findAllById(any())).thenReturn(batch);
+		when(imgurClient.deleteImage("hashA", "removed", ImgurRateLimiter.Priority.BACKGROUND))
+				.thenThrow(new IllegalStateException("Imgur client id removed is no longer configured"));
+
+		deletionService.dispatchPending();
+
+		// Kept as FAILED with the reason, for someone to retry once the id is configured again
+		assertEquals(ImageDeletion.Status.FAILED, failed.getStatus());
+		assertEquals(1, failed.getAttempts());
+		assertEquals("Imgur client id removed is no longer configured", failed.getErrorMessage());
+	}
+
+	private static ImageDeletion pending(Long id, String deleteHash, int attempts) {
+		ImageDeletion deletion = new ImageDeletion();
+		deletion.setId(id);
+		deletion.setImageId(id);
+		deletion.setUserId(1L);
+		deletion.setDeleteHash(deleteHash);
+		deletion.setStatus(ImageDeletion.Status.PENDING);
+		deletion.setAttempts(attempts);
+		deletion.setNextAttemptAt(Instant.now());
+		return deletion;
+	}
+}
@@ -0,0 +1,306 @@
+package com.example.imgur_app;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives mixed upload, view and delete traffic at a fixed arrival rate against the running
+ * application, with Imgur replaced by a local stub that adds latency and injects errors. Latency is
+ * measured from when each request was due to be sent, so a stalled server can't hide queueing delay.
+ * Excluded from the default build; run with: mvn -Ploadtest test
+ * Tunables are system properties, e.g. -Dloadtest.rate=500 -Dloadtest.imgur.latency-ms=100
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		// The limiter would shed most of the generated load long before the application saturates
+		"imgur.rate-limit.requests-per-second=100000",
+		"imgur.rate-limit.burst=100000",
+		"logging.level.root=WARN"
+})
+class ImageLoadTest {
+
+	enum Operation {
+		UPLOAD, VIEW, DELETE
+	}
+
+	private static final Pattern UPLOADED = Pattern.compile("Image ID: (\\d+)\\s+Delete Hash: (\\S+)");
+	private static final String BOUNDARY = "loadtest-boundary";
+
+	private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+	private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 10));
+	private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 30));
+	private static final int USERS = Integer.getInteger("loadtest.users", 20);
+	private static final double UPLOAD_SHARE = Double.parseDouble(System.getProperty("loadtest.mix.upload", "0.3"));
+	private static final double DELETE_SHARE = Double.parseDouble(System.getProperty("loadtest.mix.delete", "0.1"));
+	private static final long IMGUR_LATENCY_MS = Long.getLong("loadtest.imgur.latency-ms", 50);
+	private static final double IMGUR_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.imgur.error-rate", "0"));
+	private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+	private static MockWebServer imgur;
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+	private final AtomicLong uploadCounter = new AtomicLong();
+	private byte[] png;
+
+	@BeforeAll
+	static void startImgur() throws Exception {
+		imgur = new MockWebServer();
+		imgur.setDispatcher(new ImgurStub(IMGUR_LATENCY_MS, IMGUR_ERROR_RATE));
+		imgur.start();
+	}
+
+	@AfterAll
+	static void stopImgur() throws Exception {
+		imgur.shutdown();
+	}
+
+	@DynamicPropertySource
+	static void imgurProperties(DynamicPropertyRegistry registry) {
+		registry.add("imgur.base.url", () -> imgur.url("/3").toString());
+	}
+
+	@Test
+	void mixedTraffic() throws Exception {
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		png = out.toByteArray();
+
+		List<LoadUser> users = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			users.add(register("loadtest-" + i));
+		}
+
+		run(users, WARMUP);
+		Map<Operation, Stats> stats = run(users, DURATION);
+
+		long requests = 0;
+		long errors = 0;
+		System.out.printf("%nLoad test: %d req/s for %ds, %d users, Imgur stub %dms latency / %.1f%% errors%n",
+				RATE, DURATION.toSeconds(), USERS, IMGUR_LATENCY_MS, IMGUR_ERROR_RATE * 100);
+		System.out.printf("%-8s %8s %7s %9s %9s %9s %9s %9s%n", "op", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+			Histogram latency = entry.getValue().latency;
+			System.out.printf("%-8s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), latency.getTotalCount(),
+					entry.getValue().errors.sum(), millis(latency.getValueAtPercentile(50)),
+					millis(latency.getValueAtPercentile(90)), millis(latency.getValueAtPercentile(99)),
+					millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()));
+			requests += latency.getTotalCount();
+			errors += entry.getValue().errors.sum();
+		}
+		System.out.printf("throughput %.1f req/s%n%n", requests / (double) DURATION.toSeconds());
+
+		assertTrue(requests > 0);
+		// Errors injected by the stub are passed on to clients, so they are allowed on top of the budget
+		double errorRate = errors / (double) requests;
+		assertTrue(errorRate <= MAX_ERROR_RATE + IMGUR_ERROR_RATE,
+				"Error rate " + errorRate + " exceeds " + (MAX_ERROR_RATE + IMGUR_ERROR_RATE));
+	}
+
+	// Open model: requests are sent on schedule whether or not earlier ones have completed
+	private Map<Operation, Stats> run(List<LoadUser> users, Duration duration) throws InterruptedException {
+		Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+		for (Operation operation : Operation.values()) {
+			stats.put(operation, new Stats());
+		}
+		AtomicInteger inFlight = new AtomicInteger();
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+		long total = duration.toNanos() / intervalNanos;
+		long startNanos = System.nanoTime();
+		AtomicLong sent = new AtomicLong();
+
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		scheduler.scheduleAtFixedRate(() -> {
+			// Catch up on every request that fell due since the last tick
+			long due = Math.min(total, (System.nanoTime() - startNanos) / intervalNanos + 1);
+			for (long n = sent.get(); n < due; n = sent.incrementAndGet()) {
+				long intendedNanos = startNanos + n * intervalNanos;
+				LoadUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+				inFlight.incrementAndGet();
+				send(user, stats, intendedNanos, inFlight);
+			}
+		}, 0, Math.max(1, TimeUnit.NANOSECONDS.toMicros(intervalNanos)), TimeUnit.MICROSECONDS);
+
+		Thread.sleep(duration.toMillis());
+		scheduler.shutdown();
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		return stats;
+	}
+
+	private void send(LoadUser user, Map<Operation, Stats> stats, long intendedNanos, AtomicInteger inFlight) {
+		double roll = ThreadLocalRandom.current().nextDouble();
+		UploadedImage newest = user.images.peekLast();
+		// Deletes take the oldest image and views the newest, so they only collide on a user's last image
+		Operation operation = roll < UPLOAD_SHARE || newest == null ? Operation.UPLOAD
+				: roll < UPLOAD_SHARE + DELETE_SHARE && user.images.peekFirst() != newest ? Operation.DELETE
+				: Operation.VIEW;
+
+		HttpRequest request = switch (operation) {
+			case UPLOAD -> user.request("/api/images/upload")
+					.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+					.POST(HttpRequest.BodyPublishers.ofByteArray(uniqueUpload()))
+					.build();
+			case DELETE -> {
+				UploadedImage oldest = user.images.pollFirst();
+				yield user.request("/api/images/" + (oldest != null ? oldest.deleteHash() : newest.deleteHash())).DELETE().build();
+			}
+			case VIEW -> user.request("/api/images/" + newest.id()).GET().build();
+		};
+
+		Stats operationStats = stats.get(operation);
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+			try {
+				operationStats.latency.recordValue(Math.max(0, System.nanoTime() - intendedNanos) / 1000);
+				if (error != null || response.statusCode() >= 400) {
+					operationStats.errors.increment();
+				} else if (operation == Operation.UPLOAD) {
+					Matcher matcher = UPLOADED.matcher(response.body());
+					if (matcher.find()) {
+						user.images.addLast(new UploadedImage(Long.parseLong(matcher.group(1)), matcher.group(2)));
+					}
+				}
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		});
+	}
+
+	// A valid PNG followed by a counter, so no upload is answered as a duplicate
+	private byte[] uniqueUpload() {
+		byte[] content = Arrays.copyOf(png, png.length + Long.BYTES);
+		ByteBuffer.wrap(content, png.length, Long.BYTES).putLong(uploadCounter.incrementAndGet());
+		byte[] head = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"load.png\"\r\n"
+				+ "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+		byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer body = ByteBuffer.allocate(head.length + content.length + tail.length);
+		return body.put(head).put(content).put(tail).array();
+	}
+
+	private LoadUser register(String username) throws Exception {
+		String json = "{\"username\":\"" + username + "\",\"password\":\"password123\",\"firstName\":\"Load\",\"lastName\":\"Test\","
+				+ "\"email\":\"" + username + "@example.com\"}";
+		HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/api/users/register"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), response.body());
+		String credentials = Base64.getEncoder().encodeToString((username + ":password123").getBytes(StandardCharsets.UTF_8));
+		return new LoadUser("Basic " + credentials);
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+
+	private class LoadUser {
+		private final String authorization;
+		// This user's images, oldest first
+		private final ConcurrentLinkedDeque<UploadedImage> images = new ConcurrentLinkedDeque<>();
+
+		LoadUser(String authorization) {
+			this.authorization = authorization;
+		}
+
+		HttpRequest.Builder request(String path) {
+			return HttpRequest.newBuilder(uri(path))
+					.timeout(Duration.ofSeconds(30))
+					.header("Authorization", authorization);
+		}
+	}
+
+	private record UploadedImage(long id, String deleteHash) {
+	}
+
+	private static class Stats {
+		// Microseconds, up to a minute at three significant digits
+		private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+		private final LongAdder errors = new LongAdder();
+	}
+
+	// Imgur's upload, view and delete endpoints with a fixed delay and a share of 503 responses
+	private static class ImgurStub extends Dispatcher {
+		private final long latencyMs;
+		private final double errorRate;
+		private final AtomicLong ids = new AtomicLong();
+
+		ImgurStub(long latencyMs, double errorRate) {
+			this.latencyMs = latencyMs;
+			this.errorRate = errorRate;
+		}
+
+		@Override
+		public MockResponse dispatch(RecordedRequest request) {
+			MockResponse response = new MockResponse()
+					.setHeadersDelay(latencyMs, TimeUnit.MILLISECONDS)
+					.setHeader("Content-Type", "application/json");
+			String path = request.getPath() == null ? "" : request.getPath();
+			if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+				return response.setResponseCode(503).setBody("{\"success\":false,\"status\":503}");
+			}
+			if ("POST".equals(request.getMethod()) && path.equals("/3/image")) {
+				String id = Long.toString(ids.incrementAndGet(), 36);
+				return response.setBody("{\"data\":{\"id\":\"" + id + "\",\"deletehash\":\"del" + id
+						+ "\",\"link\":\"https://i.imgur.com/" + id + ".png\"},\"success\":true,\"status\":200}");
+			}
+			if (path.startsWith("/3/image/") && ("GET".equals(request.getMethod()) || "DELETE".equals(request.getMethod()))) {
+				return response.setBody("{\"data\":true,\"success\":true,\"status\":200}");
+			}
+			return response.setResponseCode(404).setBody("{\"success\":false,\"status\":404}");
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.service.ImageMetadataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageMetadataCacheTest {
+
+	private ImageRepository imageRepository;
+	private ImageMetadataCache metadataCache;
+
+	@BeforeEach
+	void setUp() {
+		imageRepository = mock(ImageRepository.class);
+		metadataCache = new ImageMetadataCache(imageRepository, Duration.ofMinutes(1), 100);
+		when(imageRepository.findSummaryByIdAndUserId(1L, 1L))
+				.thenReturn(Optional.of(new ImageSummaryDTO(1L, "https://imgur.com/a", "hashA")));
+	}
+
+	@Test
+	void testFind_SecondReadSkipsDatabase() {
+		String etag = metadataCache.find(1L, 1L).orElseThrow().getEtag();
+
+		assertEquals(etag, metadataCache.find(1L, 1L).orElseThrow().getEtag());
+		verify(imageRepository, times(1)).findSummaryByIdAndUserId(1L, 1L);
+	}
+
+	@Test
+	void testFind_OtherOwnerNotServedFromCache() {
+		metadataCache.find(1L, 1L);
+
+		assertTrue(metadataCache.find(1L, 2L).isEmpty());
+		verify(imageRepository).findSummaryByIdAndUserId(1L, 2L);
+	}
+
+	@Test
+	void testInvalidate_ReloadsFromDatabase() {
+		metadataCache.find(1L, 1L);
+		metadataCache.invalidate(1L);
+		when(imageRepository.findSummaryByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
+
+		assertTrue(metadataCache.find(1L, 1L).isEmpty());
+	}
+}
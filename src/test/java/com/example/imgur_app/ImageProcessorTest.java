@@ -0,0 +1,102 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImageProcessor;
+import com.example.imgur_app.service.UnsupportedImageException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessorTest {
+
+	private final ImageProcessor imageProcessor = new ImageProcessor(true, 256, 0.85f, Runnable::run);
+
+	private static byte[] jpeg(int width, int height) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpeg", out);
+		return out.toByteArray();
+	}
+
+	// Inserts an EXIF APP1 segment holding only an orientation tag right after SOI
+	private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+		byte[] exif = {
+				(byte) 0xFF, (byte) 0xE1, 0, 34,
+				'E', 'x', 'i', 'f', 0, 0,
+				'I', 'I', 0x2A, 0, 8, 0, 0, 0,
+				1, 0,
+				0x12, 0x01, 3, 0, 1, 0, 0, 0, (byte) orientation, 0, 0, 0,
+				0, 0, 0, 0};
+		byte[] result = new byte[jpeg.length + exif.length];
+		System.arraycopy(jpeg, 0, result, 0, 2);
+		System.arraycopy(exif, 0, result, 2, exif.length);
+		System.arraycopy(jpeg, 2, result, 2 + exif.length, jpeg.length - 2);
+		return result;
+	}
+
+	private static BufferedImage read(ImageProcessor.ProcessedImage processed) throws Exception {
+		try (InputStream in = processed.getInputStream()) {
+			return ImageIO.read(in);
+		}
+	}
+
+	private static boolean contains(byte[] haystack, String needle) {
+		return new String(haystack, StandardCharsets.ISO_8859_1).contains(needle);
+	}
+
+	@Test
+	void testRequireImage_RejectsNonImages() {
+		ByteArrayResource text = new ByteArrayResource("just some text".getBytes(StandardCharsets.US_ASCII));
+
+		assertThrows(UnsupportedImageException.class, () -> imageProcessor.requireImage(text));
+	}
+
+	@Test
+	void testSniff_RecognisesFormats() {
+		assertEquals(ImageProcessor.ImageFormat.JPEG, ImageProcessor.sniff(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0}));
+		assertEquals(ImageProcessor.ImageFormat.GIF, ImageProcessor.sniff("GIF89a".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(ImageProcessor.ImageFormat.WEBP, ImageProcessor.sniff("RIFF\0\0\0\0WEBP".getBytes(StandardCharsets.US_ASCII)));
+		assertNull(ImageProcessor.sniff(new byte[0]));
+	}
+
+	@Test
+	void testProcess_DownscalesLargeImages() throws Exception {
+		byte[] original = jpeg(1024, 512);
+
+		try (ImageProcessor.ProcessedImage processed = imageProcessor.process(new ByteArrayResource(original), original.length)) {
+			BufferedImage image = read(processed);
+			assertTrue(processed.isModified());
+			assertEquals(256, image.getWidth());
+			assertEquals(128, image.getHeight());
+		}
+	}
+
+	@Test
+	void testProcess_StripsExifFromSmallImages() throws Exception {
+		byte[] original = withExifOrientation(jpeg(64, 32), 1);
+
+		try (ImageProcessor.ProcessedImage processed = imageProcessor.process(new ByteArrayResource(original), original.length);
+			 InputStream in = processed.getInputStream()) {
+			byte[] stripped = in.readAllBytes();
+			assertTrue(contains(original, "Exif"));
+			assertFalse(contains(stripped, "Exif"));
+			assertEquals(original.length - 36, stripped.length);
+		}
+	}
+
+	@Test
+	void testProcess_AppliesOrientationBeforeStripping() throws Exception {
+		byte[] original = withExifOrientation(jpeg(64, 32), 6);
+
+		try (ImageProcessor.ProcessedImage processed = imageProcessor.process(new ByteArrayResource(original), original.length)) {
+			BufferedImage image = read(processed);
+			assertEquals(32, image.getWidth());
+			assertEquals(64, image.getHeight());
+		}
+	}
+}
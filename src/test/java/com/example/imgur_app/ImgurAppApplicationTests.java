@@ -2,27 +2,51 @@ package com.example.imgur_app;
 
 import com.example.imgur_app.controller.ImageController;
 import com.example.imgur_app.controller.UserController;
+import com.example.imgur_app.dto.ImagePageDTO;
+import com.example.imgur_app.dto.ImageSummaryDTO;
 import com.example.imgur_app.dto.UserRegistrationDTO;
 import com.example.imgur_app.entity.Image;
 import com.example.imgur_app.entity.User;
 import com.example.imgur_app.repository.ImageRepository;
 import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.security.AuthenticatedUser;
+import com.example.imgur_app.service.AsyncImgurClient;
+import com.example.imgur_app.service.ImageContentCache;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import com.example.imgur_app.service.ImageDeletionService;
+import com.example.imgur_app.service.ImageMetadataCache;
+import com.example.imgur_app.service.ImageProcessor;
 import com.example.imgur_app.service.ImgurClient;
 import com.example.imgur_app.service.ImgurClient.ImageMetadata;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.example.imgur_app.service.StageMetrics;
+import com.example.imgur_app.service.UnsupportedImageException;
+import com.example.imgur_app.service.UploadJobService;
 import com.example.imgur_app.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -43,25 +67,64 @@ class ImgurAppApplicationTests {
 	@Mock
 	private ImageRepository imageRepository;
 
+	@Mock
+	private UploadJobService uploadJobService;
+
+	@Mock
+	private ImageDeduplicationService deduplicationService;
+
+	@Mock
+	private ImageMetadataCache metadataCache;
+
+	@Mock
+	private ImageProcessor imageProcessor;
+
+	@Mock
+	private StageMetrics stageMetrics;
+
+	@Mock
+	private AsyncImgurClient asyncImgurClient;
+
+	@Mock
+	private ImageDeletionService imageDeletionService;
+
+	@Mock
+	private ImageContentCache contentCache;
+
 	@InjectMocks
 	private ImageController imageController;
 
-	@Mock
-	private Authentication authentication;
+	private AuthenticatedUser principal;
 
 	@Mock
 	private MultipartFile mockFile;
 
+	// Runs async saves inline and records that they were handed off
+	private final List<Runnable> savesRun = new ArrayList<>();
+	private final Executor saveExecutor = task -> {
+		savesRun.add(task);
+		task.run();
+	};
+
 	private User user;
 
 	@BeforeEach
-	void setUp() {
+	void setUp() throws Exception {
 		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(imageController, "metadataCacheControl", "private, max-age=60");
+		ReflectionTestUtils.setField(imageController, "listCacheControl", "private, no-cache");
+		ReflectionTestUtils.setField(imageController, "saveExecutor", saveExecutor);
+
+		// Processing passes images through unchanged unless a test says otherwise
+		when(imageProcessor.process(any(), anyLong())).thenAnswer(invocation ->
+				ImageProcessor.ProcessedImage.unchanged(invocation.getArgument(0), invocation.<Long>getArgument(1)));
 
 		user = new User();
 		user.setId(1L);
 		user.setUsername("testuser");
 		user.setPassword("password");
+
+		principal = new AuthenticatedUser(1L, "testuser", null);
 	}
 
 	@Test
@@ -105,23 +168,21 @@ class ImgurAppApplicationTests {
 
 	@Test
 	void testUploadImage_Success() throws Exception {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-
 		// Mock ImgurClient upload
 		ImageMetadata metadata = new ImageMetadata("1","deleteHash123", "https://imgur.com/image123");
-		when(imgurClient.uploadImage(any())).thenReturn(metadata);
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong())).thenReturn(metadata);
 
 		// Mock MultipartFile
-		when(mockFile.getBytes()).thenReturn(new byte[0]);
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(mockFile.getSize()).thenReturn(0L);
 
 		// Call uploadImage
-		ResponseEntity<?> response = imageController.uploadImage(mockFile, authentication);
+		ResponseEntity<?> response = imageController.uploadImage(mockFile, principal);
 
 		// Verify interactions
-		verify(imgurClient).uploadImage(any());
+		verify(imgurClient).uploadImage(any(InputStream.class), anyLong());
 		verify(imageRepository).save(any(Image.class));
+		verify(userRepository, never()).findByUsername(any());
 
 		// Assert response
 		assertEquals(200, response.getStatusCode().value());
@@ -129,55 +190,138 @@ class ImgurAppApplicationTests {
 	}
 
 	@Test
-	void testUploadImage_UserNotFound() {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+	void testUploadImageAsync_Success() throws Exception {
+		// Mock the non-blocking upload completing, and keep the file it was given
+		ImageMetadata metadata = new ImageMetadata("1", "deleteHash123", "https://imgur.com/image123");
+		List<Path> uploaded = new ArrayList<>();
+		when(asyncImgurClient.uploadImage(any(Path.class), eq(ImgurRateLimiter.Priority.INTERACTIVE))).thenAnswer(invocation -> {
+			uploaded.add(invocation.getArgument(0));
+			return CompletableFuture.completedFuture(metadata);
+		});
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(mockFile.getSize()).thenReturn(0L);
+
+		// Call uploadImageAsync
+		ResponseEntity<?> response = imageController.uploadImageAsync(mockFile, principal).get();
+
+		// The image is saved on the save pool once the upload completes, without the blocking client
+		verifyNoInteractions(imgurClient);
+		verify(imageRepository).save(any(Image.class));
+		assertEquals(1, savesRun.size());
+		assertEquals(200, response.getStatusCode().value());
+		assertTrue(response.getBody().toString().contains("deleteHash123"));
+		// The upload was sent from a file of its own, deleted once the upload finished
+		verify(mockFile).transferTo(uploaded.get(0).toFile());
+		assertFalse(Files.exists(uploaded.get(0)));
+	}
+
+	@Test
+	void testUploadImageAsync_ImgurFailure() throws Exception {
+		// Mock the non-blocking upload failing
+		when(asyncImgurClient.uploadImage(any(Path.class), eq(ImgurRateLimiter.Priority.INTERACTIVE)))
+				.thenReturn(CompletableFuture.failedFuture(new Exception("Imgur API error")));
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(mockFile.getSize()).thenReturn(0L);
+
+		// Call uploadImageAsync
+		ResponseEntity<?> response = imageController.uploadImageAsync(mockFile, principal).get();
+
+		verify(imageRepository, never()).save(any(Image.class));
+		assertEquals(500, response.getStatusCode().value());
+		assertTrue(response.getBody().toString().contains("Imgur API error"));
+	}
+
+	@Test
+	void testUploadImageAsync_NotStartedReleasesFile() throws Exception {
+		// Mock the upload being refused before any future exists
+		List<Path> uploaded = new ArrayList<>();
+		when(asyncImgurClient.uploadImage(any(Path.class), eq(ImgurRateLimiter.Priority.INTERACTIVE))).thenAnswer(invocation -> {
+			uploaded.add(invocation.getArgument(0));
+			throw new RejectedExecutionException("full");
+		});
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(mockFile.getSize()).thenReturn(0L);
+
+		ResponseEntity<?> response = imageController.uploadImageAsync(mockFile, principal).get();
+
+		assertEquals(503, response.getStatusCode().value());
+		assertFalse(Files.exists(uploaded.get(0)));
+	}
+
+	@Test
+	void testUploadImage_DuplicateSkipsImgur() throws Exception {
+		// Mock an earlier upload of the same content by the same user
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+		when(mockFile.getSize()).thenReturn(3L);
+		when(deduplicationService.hash(any(InputStream.class))).thenReturn("abc123");
+		when(deduplicationService.findDuplicate(1L, "abc123", 3L))
+				.thenReturn(Optional.of(new ImageSummaryDTO(5L, "https://imgur.com/image123", "deleteHash123")));
 
 		// Call uploadImage
-		ResponseEntity<?> response = imageController.uploadImage(mockFile, authentication);
+		ResponseEntity<?> response = imageController.uploadImage(mockFile, principal);
 
-		// Verify no interactions with ImgurClient
+		// The existing link is returned without an outbound call or a new row
 		verifyNoInteractions(imgurClient);
+		verify(imageRepository, never()).save(any(Image.class));
+		assertEquals(200, response.getStatusCode().value());
+		assertTrue(response.getBody().toString().contains("https://imgur.com/image123"));
+	}
+
+	@Test
+	void testUploadImage_NotAnImage() throws Exception {
+		// Mock the format check rejecting the upload
+		when(imageProcessor.requireImage(mockFile)).thenThrow(new UnsupportedImageException("Unsupported image format"));
+
+		// Call uploadImage
+		ResponseEntity<?> response = imageController.uploadImage(mockFile, principal);
+
+		// Nothing is hashed, uploaded or saved
+		verifyNoInteractions(imgurClient, deduplicationService, imageRepository);
+		assertEquals(415, response.getStatusCode().value());
+	}
+
+	@Test
+	void testUploadImage_ImgurFailure() throws Exception {
+		// Mock ImgurClient failure
+		when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong())).thenThrow(new Exception("Imgur unavailable"));
+
+		// Call uploadImage
+		ResponseEntity<?> response = imageController.uploadImage(mockFile, principal);
+
+		// Verify nothing was saved and the user was never looked up
+		verifyNoInteractions(imageRepository);
+		verify(userRepository, never()).findByUsername(any());
 
 		// Assert response
 		assertEquals(500, response.getStatusCode().value());
-		assertTrue(response.getBody().toString().contains("User not found"));
+		assertTrue(response.getBody().toString().contains("Imgur unavailable"));
 	}
 
 	@Test
 	void testGetImage_Success() {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-
-		// Mock image repository
-		Image image = new Image();
-		image.setId(1L);
-		image.setDeleteHash("deleteHash123");
-		image.setLink("https://imgur.com/image123");
-		image.setUser(user);
-		when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+		// Mock metadata cache
+		ImageSummaryDTO image = new ImageSummaryDTO(1L, "https://imgur.com/image123", "deleteHash123");
+		ImageMetadataCache.CachedImage cached = new ImageMetadataCache.CachedImage(image, 1L);
+		when(metadataCache.find(1L, 1L)).thenReturn(Optional.of(cached));
 
 		// Call viewImage
-		ResponseEntity<?> response = imageController.viewImage(1L, authentication);
+		ResponseEntity<?> response = imageController.viewImage(1L, principal);
 
-		// Assert response
+		// Assert response carries a validator for conditional requests
 		assertEquals(200, response.getStatusCode().value());
 		assertTrue(response.getBody().toString().contains("https://imgur.com/image123"));
+		assertEquals(cached.getEtag(), response.getHeaders().getETag());
 	}
 
 	@Test
 	void testGetImage_ImageNotFound() {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-
-		// Mock image repository
-		when(imageRepository.findById(1L)).thenReturn(Optional.empty());
+		// Mock metadata cache and repository
+		when(metadataCache.find(1L, 1L)).thenReturn(Optional.empty());
+		when(imageRepository.existsById(1L)).thenReturn(false);
 
 		// Call getImage
-		ResponseEntity<?> response = imageController.viewImage(1L, authentication);
+		ResponseEntity<?> response = imageController.viewImage(1L, principal);
 
 		// Assert response
 		assertEquals(500, response.getStatusCode().value());
@@ -186,23 +330,19 @@ class ImgurAppApplicationTests {
 
 	@Test
 	void testDeleteImage_Success() throws Exception {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-
 		// Mock image repository
-		Image image = new Image();
-		image.setId(1L);
-		image.setDeleteHash("deleteHash123");
-		image.setUser(user);
-		when(imageRepository.findByDeleteHash("deleteHash123")).thenReturn(Optional.of(image));
+		ImageSummaryDTO image = new ImageSummaryDTO(1L, "https://imgur.com/image123", "deleteHash123");
+		when(imageRepository.findSummaryByDeleteHashAndUserId("deleteHash123", 1L)).thenReturn(Optional.of(image));
+		when(imageDeletionService.delete(image, 1L)).thenReturn(true);
 
 		// Call deleteImage
-		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", authentication);
+		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", principal);
 
-		// Verify interactions
-		verify(imgurClient).deleteImage("deleteHash123");
-		verify(imageRepository).delete(image);
+		// Verify interactions: the Imgur delete is queued, not sent while the client waits
+		verify(imageDeletionService).delete(image, 1L);
+		verify(metadataCache).invalidate(1L);
+		verify(contentCache).invalidate(1L);
+		verifyNoInteractions(imgurClient);
 
 		// Assert response
 		assertEquals(200, response.getStatusCode().value());
@@ -210,16 +350,28 @@ class ImgurAppApplicationTests {
 	}
 
 	@Test
-	void testDeleteImage_ImageNotFound() {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+	void testDeleteImage_DeletedConcurrently() {
+		// Mock image repository: the row is gone by the time it is deleted
+		ImageSummaryDTO image = new ImageSummaryDTO(1L, "https://imgur.com/image123", "deleteHash123");
+		when(imageRepository.findSummaryByDeleteHashAndUserId("deleteHash123", 1L)).thenReturn(Optional.of(image));
+		when(imageDeletionService.delete(image, 1L)).thenReturn(false);
+
+		// Call deleteImage
+		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", principal);
+
+		// Assert response
+		assertEquals(500, response.getStatusCode().value());
+		assertTrue(response.getBody().toString().contains("Image not found"));
+	}
 
+	@Test
+	void testDeleteImage_ImageNotFound() {
 		// Mock image repository
-		when(imageRepository.findByDeleteHash("deleteHash123")).thenReturn(Optional.empty());
+		when(imageRepository.findSummaryByDeleteHashAndUserId("deleteHash123", 1L)).thenReturn(Optional.empty());
+		when(imageRepository.existsByDeleteHash("deleteHash123")).thenReturn(false);
 
 		// Call deleteImage
-		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", authentication);
+		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", principal);
 
 		// Verify no interactions with ImgurClient
 		verifyNoInteractions(imgurClient);
@@ -231,22 +383,12 @@ class ImgurAppApplicationTests {
 
 	@Test
 	void testDeleteImage_UnauthorizedAccess() {
-		// Mock authentication
-		when(authentication.getName()).thenReturn("testuser");
-		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-
-		// Mock image repository
-		User otherUser = new User();
-		otherUser.setId(2L);
-
-		Image image = new Image();
-		image.setId(1L);
-		image.setDeleteHash("deleteHash123");
-		image.setUser(otherUser);
-		when(imageRepository.findByDeleteHash("deleteHash123")).thenReturn(Optional.of(image));
+		// Mock image repository: the image exists but belongs to another user
+		when(imageRepository.findSummaryByDeleteHashAndUserId("deleteHash123", 1L)).thenReturn(Optional.empty());
+		when(imageRepository.existsByDeleteHash("deleteHash123")).thenReturn(true);
 
 		// Call deleteImage
-		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", authentication);
+		ResponseEntity<?> response = imageController.deleteImage("deleteHash123", principal);
 
 		// Verify no interactions with ImgurClient
 		verifyNoInteractions(imgurClient);
@@ -255,4 +397,35 @@ class ImgurAppApplicationTests {
 		assertEquals(403, response.getStatusCode().value());
 		assertTrue(response.getBody().toString().contains("Access denied"));
 	}
+
+	@Test
+	void testGetUploadJob_NotFound() {
+		// Mock job lookup
+		when(uploadJobService.findJob(5L, 1L)).thenReturn(Optional.empty());
+
+		// Call getUploadJob
+		ResponseEntity<?> response = imageController.getUploadJob(5L, principal);
+
+		// Assert response
+		assertEquals(404, response.getStatusCode().value());
+		assertTrue(response.getBody().toString().contains("Upload job not found"));
+	}
+
+	@Test
+	void testListImages_ReturnsNextPageCursor() {
+		// Mock image repository: one more row than requested means another page follows
+		when(imageRepository.findSummariesByUserIdAfter(eq(1L), eq(0L), any(Limit.class))).thenReturn(List.of(
+				new ImageSummaryDTO(3L, "https://imgur.com/a", "hashA"),
+				new ImageSummaryDTO(7L, "https://imgur.com/b", "hashB"),
+				new ImageSummaryDTO(9L, "https://imgur.com/c", "hashC")));
+
+		// Call listImages
+		ResponseEntity<?> response = imageController.listImages(0L, 2, principal);
+
+		// Assert response
+		assertEquals(200, response.getStatusCode().value());
+		ImagePageDTO page = (ImagePageDTO) response.getBody();
+		assertEquals(2, page.getImages().size());
+		assertEquals(7L, page.getNextAfterId());
+	}
 }
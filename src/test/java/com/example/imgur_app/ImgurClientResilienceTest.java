@@ -0,0 +1,191 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurCredentialPool;
+import com.example.imgur_app.service.ImgurFailurePredicate;
+import com.example.imgur_app.service.ImgurRateLimitException;
+import com.example.imgur_app.service.ImgurResilience;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs ImgurClient against a local stub server that injects errors and latency
+class ImgurClientResilienceTest {
+
+	private MockWebServer server;
+	private ImgurResilience resilience;
+	private ImgurClient imgurClient;
+	private SimpleMeterRegistry registry;
+	private OkHttpClient httpClient;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+
+		CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+				.slidingWindowSize(4)
+				.minimumNumberOfCalls(4)
+				.failureRateThreshold(50)
+				.waitDurationInOpenState(Duration.ofMinutes(1))
+				.recordException(new ImgurFailurePredicate())
+				.build());
+		RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom()
+				.maxAttempts(3)
+				.waitDuration(Duration.ofMillis(10))
+				.retryOnException(new ImgurFailurePredicate())
+				.build());
+		resilience = new ImgurResilience(circuitBreakerRegistry, retryRegistry, BulkheadRegistry.ofDefaults());
+
+		httpClient = new OkHttpClient.Builder()
+				.readTimeout(Duration.ofMillis(200))
+				.build();
+		ImgurCredentialPool credentialPool = new ImgurCredentialPool(List.of("test-client"), 1000, 100, 0,
+				Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+		registry = new SimpleMeterRegistry();
+		imgurClient = client(credentialPool);
+	}
+
+	private ImgurClient client(ImgurCredentialPool credentialPool) {
+		ImgurClient client = new ImgurClient(httpClient, new ObjectMapper(), resilience, credentialPool, registry);
+		ReflectionTestUtils.setField(client, "baseUrl", server.url("/3").toString());
+		return client;
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	void testDelete_RetriedOnServerError() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(503));
+		server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+		imgurClient.deleteImage("deleteHash123");
+
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_NotRetriedOnNotFound() {
+		server.enqueue(new MockResponse().setResponseCode(404));
+
+		assertThrows(Exception.class, () -> imgurClient.deleteImage("deleteHash123"));
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_EveryAttemptTakesARateLimitPermit() {
+		// A burst of two permits and then nothing for 100s
+		ImgurClient paced = client(new ImgurCredentialPool(List.of("test-client"), 0.01, 2, 0,
+				Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1)));
+		server.enqueue(new MockResponse().setResponseCode(503));
+		server.enqueue(new MockResponse().setResponseCode(503));
+		server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+		assertThrows(ImgurRateLimitException.class, () -> paced.deleteImage("deleteHash123"));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void testDelete_ThrottledNotRetriedWhileLimiterBlocked() {
+		server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+		server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+		assertThrows(ImgurRateLimitException.class, () -> imgurClient.deleteImage("deleteHash123"));
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	void testUpload_NotRetried() {
+		server.enqueue(new MockResponse().setResponseCode(503));
+
+		assertThrows(Exception.class, () ->
+				imgurClient.uploadImage(new ByteArrayInputStream(new byte[16]), 16));
+		assertEquals(1, server.getRequestCount());
+		assertEquals(1.0, registry.get("imgur.client.responses").tags("method", "upload", "status", "503").counter().count());
+		assertEquals(1, registry.get("imgur.client.requests").tags("method", "upload", "outcome", "server_error").timer().count());
+	}
+
+	@Test
+	void testBulkhead_ReportsRunningAndWaitingCalls() throws Exception {
+		ImgurResilience capped = new ImgurResilience(CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+				BulkheadRegistry.of(BulkheadConfig.custom()
+						.maxConcurrentCalls(1)
+						.maxWaitDuration(Duration.ofSeconds(5))
+						.build()));
+		capped.bindTo(registry);
+		Gauge running = registry.get("imgur.http.calls").tags("operation", "upload", "state", "running").gauge();
+		Gauge waiting = registry.get("imgur.http.calls").tags("operation", "upload", "state", "waiting").gauge();
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = callers.submit(() -> capped.call(ImgurResilience.Operation.UPLOAD, () -> {
+				release.await();
+				return "first";
+			}));
+			Future<String> second = callers.submit(() -> capped.call(ImgurResilience.Operation.UPLOAD, () -> "second"));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (waiting.value() < 1 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1.0, running.value());
+			assertEquals(1.0, waiting.value());
+
+			release.countDown();
+			assertEquals("first", first.get(5, TimeUnit.SECONDS));
+			assertEquals("second", second.get(5, TimeUnit.SECONDS));
+			assertEquals(0.0, running.value());
+			assertEquals(0.0, waiting.value());
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void testCircuitBreaker_OpensAndFailsFast() {
+		// Slow responses time out on the client side and count as failures
+		for (int i = 0; i < 4; i++) {
+			server.enqueue(new MockResponse().setBody("{}").setHeadersDelay(1, TimeUnit.SECONDS));
+		}
+		for (int i = 0; i < 4; i++) {
+			assertThrows(Exception.class, () ->
+					imgurClient.uploadImage(new ByteArrayInputStream(new byte[16]), 16));
+		}
+		assertEquals(CircuitBreaker.State.OPEN, resilience.getCircuitBreakerState());
+
+		// Further calls are rejected without reaching the server
+		int requestsBefore = server.getRequestCount();
+		assertThrows(CallNotPermittedException.class, () ->
+				imgurClient.uploadImage(new ByteArrayInputStream(new byte[16]), 16));
+		assertEquals(requestsBefore, server.getRequestCount());
+	}
+}
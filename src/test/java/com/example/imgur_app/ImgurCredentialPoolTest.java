@@ -0,0 +1,97 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImgurCredential;
+import com.example.imgur_app.service.ImgurCredentialPool;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImgurCredentialPoolTest {
+
+	private static Response response(int code, long clientRemaining) {
+		return new Response.Builder()
+				.request(new Request.Builder().url("http://localhost/3/image").build())
+				.protocol(Protocol.HTTP_1_1)
+				.code(code)
+				.message("")
+				.header("X-RateLimit-ClientRemaining", String.valueOf(clientRemaining))
+				.build();
+	}
+
+	private static ImgurCredentialPool pool(String... clientIds) {
+		return new ImgurCredentialPool(List.of(clientIds), 1000, 10, 0,
+				Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofSeconds(60));
+	}
+
+	private static ImgurCredential credential(ImgurCredentialPool pool, String clientId) {
+		return pool.getCredentials().stream()
+				.filter(credential -> credential.getClientId().equals(clientId))
+				.findFirst()
+				.orElseThrow();
+	}
+
+	@Test
+	void testSelect_SpreadsCallsWhileQuotaIsUnknown() {
+		ImgurCredentialPool pool = pool("a", "b", "c");
+
+		Set<String> selected = new HashSet<>();
+		for (int i = 0; i < 3; i++) {
+			selected.add(pool.select().getClientId());
+		}
+
+		assertEquals(Set.of("a", "b", "c"), selected);
+	}
+
+	@Test
+	void testSelect_PrefersMostRemainingQuota() {
+		ImgurCredentialPool pool = pool("a", "b");
+		credential(pool, "a").getRateLimiter().update(response(200, 100));
+		credential(pool, "b").getRateLimiter().update(response(200, 5000));
+
+		assertEquals("b", pool.select().getClientId());
+		assertEquals("b", pool.select().getClientId());
+	}
+
+	@Test
+	void testSelect_SkipsThrottledAndFailingIds() {
+		ImgurCredentialPool pool = pool("a", "b", "c");
+		credential(pool, "a").getRateLimiter().update(response(429, 5000));
+		for (int i = 0; i < 20; i++) {
+			credential(pool, "b").recordResult(true);
+		}
+		credential(pool, "b").getRateLimiter().update(response(200, 5000));
+		credential(pool, "c").getRateLimiter().update(response(200, 4000));
+
+		assertEquals("c", pool.select().getClientId());
+	}
+
+	@Test
+	void testForClientId_RoutesToUploadingIdOrFallsBack() {
+		ImgurCredentialPool pool = pool("a", "b");
+
+		assertEquals("b", pool.forClientId("b").getClientId());
+		assertNotNull(pool.forClientId(null));
+	}
+
+	@Test
+	void testForClientId_RemovedIdFails() {
+		ImgurCredentialPool pool = pool("a", "b");
+
+		// Another id can't delete the image, so the delete isn't sent with one
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> pool.forClientId("removed"));
+		assertTrue(e.getMessage().contains("removed"));
+	}
+
+	@Test
+	void testEmptyConfiguration_Rejected() {
+		assertThrows(IllegalStateException.class, () -> pool(" "));
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImgurRateLimitException;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImgurRateLimiterTest {
+
+	private static Response response(int code, long clientRemaining) {
+		return new Response.Builder()
+				.request(new Request.Builder().url("https://api.imgur.com/3/image").build())
+				.protocol(Protocol.HTTP_1_1)
+				.code(code)
+				.message("")
+				.header("X-RateLimit-ClientRemaining", String.valueOf(clientRemaining))
+				.build();
+	}
+
+	private static ImgurRateLimiter limiter() {
+		return new ImgurRateLimiter("test-client", 1000, 10, 100,
+				Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofSeconds(60));
+	}
+
+	@Test
+	void testLowQuota_ShedsBackgroundButNotInteractive() throws Exception {
+		ImgurRateLimiter rateLimiter = limiter();
+		rateLimiter.update(response(200, 50));
+
+		assertThrows(ImgurRateLimitException.class, () -> rateLimiter.acquire(ImgurRateLimiter.Priority.BACKGROUND));
+		rateLimiter.acquire(ImgurRateLimiter.Priority.INTERACTIVE);
+	}
+
+	@Test
+	void testThrottledResponse_ShedsEverything() {
+		ImgurRateLimiter rateLimiter = limiter();
+		rateLimiter.update(response(429, 1000));
+
+		assertThrows(ImgurRateLimitException.class, () -> rateLimiter.acquire(ImgurRateLimiter.Priority.INTERACTIVE));
+	}
+
+	@Test
+	void testBurstExhausted_ShedsWhenWaitTooLong() throws Exception {
+		// 1 request per second, burst of 1, at most 100ms wait
+		ImgurRateLimiter rateLimiter = new ImgurRateLimiter("test-client", 1, 1, 0,
+				Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofSeconds(60));
+
+		rateLimiter.acquire(ImgurRateLimiter.Priority.INTERACTIVE);
+		assertThrows(ImgurRateLimitException.class, () -> rateLimiter.acquire(ImgurRateLimiter.Priority.INTERACTIVE));
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.timing.RequestTiming;
+import com.example.imgur_app.timing.RequestTimingFilter;
+import com.example.imgur_app.timing.SlowRequestLog;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingFilterTest {
+
+	private SlowRequestLog slowRequestLog;
+	private RequestTimingFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		slowRequestLog = new SlowRequestLog(2);
+		filter = new RequestTimingFilter(slowRequestLog, true);
+	}
+
+	@Test
+	void testServerTimingHeader_ListsStagesBeforeBodyIsWritten() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/images/1"), response, (req, res) -> {
+			RequestTiming.record("db-lookup", 2_000_000);
+			RequestTiming.record("db-lookup", 1_000_000);
+			res.getWriter().write("https://imgur.com/a");
+			res.flushBuffer();
+		});
+
+		String header = response.getHeader("Server-Timing");
+		assertNotNull(header);
+		assertTrue(header.startsWith("db-lookup;dur=3.0, total;dur="), header);
+		assertEquals("https://imgur.com/a", response.getContentAsString());
+	}
+
+	@Test
+	void testRecord_IgnoredOutsideRequest() throws Exception {
+		RequestTiming.record("imgur-upload", 5_000_000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/images"), response, (req, res) -> { });
+
+		assertTrue(response.getHeader("Server-Timing").startsWith("total;dur="));
+	}
+
+	@Test
+	void testSlowRequestLog_RecordsRouteInsteadOfPath() throws Exception {
+		MockHttpServletRequest matched = new MockHttpServletRequest("DELETE", "/api/images/secretDeleteHash");
+		matched.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/images/{deleteHash}");
+
+		filter.doFilter(matched, new MockHttpServletResponse(), (req, res) -> { });
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/images/secretDeleteHash"), new MockHttpServletResponse(),
+				(req, res) -> { });
+
+		List<String> paths = slowRequestLog.slowest().stream().map(SlowRequestLog.SlowRequest::path).toList();
+		assertTrue(paths.contains("/api/images/{deleteHash}"), paths.toString());
+		assertTrue(paths.contains("(unmatched)"), paths.toString());
+		assertTrue(paths.stream().noneMatch(path -> path.contains("secretDeleteHash")), paths.toString());
+	}
+
+	@Test
+	void testAsyncRequest_ReportedOnAsyncDispatchWithCallbackStages() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/images/upload/async");
+		request.setAsyncSupported(true);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/images/upload/async");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		AtomicReference<Function<String, String>> callback = new AtomicReference<>();
+
+		// The handler records a stage and returns, leaving a callback to finish on another thread
+		filter.doFilter(request, response, (req, res) -> {
+			RequestTiming.record("process", 1_000_000);
+			callback.set(RequestTiming.propagate(link -> {
+				RequestTiming.record("imgur-upload", 4_000_000);
+				return link;
+			}));
+			req.startAsync();
+		});
+		assertNull(response.getHeader("Server-Timing"));
+		assertTrue(slowRequestLog.slowest().isEmpty());
+
+		// A request handled meanwhile on the same thread gets its own timing
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/images"), new MockHttpServletResponse(), (req, res) -> {
+			RequestTiming.record("db-lookup", 2_000_000);
+		});
+
+		CompletableFuture.supplyAsync(() -> callback.get().apply("https://i.imgur.com/a.png")).get(5, TimeUnit.SECONDS);
+
+		// The async dispatch writes the response and reports both stages
+		request.setAsyncStarted(false);
+		request.setDispatcherType(DispatcherType.ASYNC);
+		filter.doFilter(request, response, (req, res) -> res.getWriter().write("done"));
+
+		String header = response.getHeader("Server-Timing");
+		assertTrue(header.startsWith("process;dur=1.0, imgur-upload;dur=4.0, total;dur="), header);
+		SlowRequestLog.SlowRequest logged = slowRequestLog.slowest().stream()
+				.filter(slow -> slow.path().equals("/api/images/upload/async")).findFirst().orElseThrow();
+		assertEquals(Map.of("process", 1.0, "imgur-upload", 4.0), logged.stagesMillis());
+	}
+
+	@Test
+	void testSlowRequestLog_KeepsSlowestRequests() {
+		slowRequestLog.offer(1_000_000, slowRequest("/a"));
+		slowRequestLog.offer(3_000_000, slowRequest("/b"));
+		slowRequestLog.offer(2_000_000, slowRequest("/c"));
+
+		List<SlowRequestLog.SlowRequest> slowest = slowRequestLog.slowest();
+		assertEquals(List.of("/b", "/c"), slowest.stream().map(SlowRequestLog.SlowRequest::path).toList());
+		assertFalse(slowRequestLog.wouldKeep(1_500_000));
+		assertTrue(slowRequestLog.wouldKeep(2_500_000));
+
+		slowRequestLog.clear();
+		assertTrue(slowRequestLog.slowest().isEmpty());
+	}
+
+	private static SlowRequestLog.SlowRequest slowRequest(String path) {
+		return new SlowRequestLog.SlowRequest(Instant.now(), "POST", path, 200, 0, Map.of());
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.config.HibernateCacheConfig;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.User;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SecondLevelCacheTest {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void testFindByUsername_SecondLookupServedFromQueryCache() {
+		User user = saveUser();
+
+		assertTrue(userRepository.findByUsername(user.getUsername()).isPresent());
+		assertTrue(userRepository.findByUsername(user.getUsername()).isPresent());
+
+		CacheRegionStatistics region = statistics.getQueryRegionStatistics(HibernateCacheConfig.USERS_BY_USERNAME_REGION);
+		assertEquals(1, region.getMissCount());
+		assertEquals(1, region.getHitCount());
+		assertEquals(1, statistics.getQueryExecutionCount());
+	}
+
+	@Test
+	void testFindByUsername_CachedMissInvalidatedBySave() {
+		String username = "cache-" + UUID.randomUUID();
+
+		assertTrue(userRepository.findByUsername(username).isEmpty());
+
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword("password");
+		userRepository.save(user);
+
+		assertTrue(userRepository.findByUsername(username).isPresent());
+	}
+
+	@Test
+	void testFindById_ServedFromEntityCacheUntilDeleted() {
+		Image image = new Image();
+		image.setDeleteHash("hash-" + UUID.randomUUID());
+		image.setLink("https://i.imgur.com/cached.png");
+		image.setUser(saveUser());
+		imageRepository.save(image);
+
+		assertTrue(imageRepository.findById(image.getId()).isPresent());
+		assertEquals(1, statistics.getDomainDataRegionStatistics(HibernateCacheConfig.IMAGES_REGION).getHitCount());
+
+		imageRepository.deleteById(image.getId());
+
+		assertTrue(imageRepository.findById(image.getId()).isEmpty());
+	}
+
+	private User saveUser() {
+		User user = new User();
+		user.setUsername("cache-" + UUID.randomUUID());
+		user.setPassword("password");
+		return userRepository.save(user);
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurCredentialPool;
+import com.example.imgur_app.service.ImgurResilience;
+import com.example.imgur_app.service.StreamingRequestBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Uploads from a spooled file are streamed from disk to the socket rather than read into a byte[]
+class StreamingUploadTest {
+
+	private static final int IMAGE_SIZE = 8 * 1024 * 1024;
+
+	@TempDir
+	Path spoolDirectory;
+
+	private MockWebServer server;
+	private ImgurClient imgurClient;
+	private Path spoolFile;
+	private byte[] imageBytes;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = new MockWebServer();
+		server.start();
+
+		ImgurResilience resilience = new ImgurResilience(CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(),
+				BulkheadRegistry.ofDefaults());
+		ImgurCredentialPool credentialPool = new ImgurCredentialPool(List.of("test-client"), 1000, 100, 0,
+				Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+		imgurClient = new ImgurClient(new OkHttpClient(), new ObjectMapper(), resilience, credentialPool,
+				new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(imgurClient, "baseUrl", server.url("/3").toString());
+
+		imageBytes = new byte[IMAGE_SIZE];
+		new Random(42).nextBytes(imageBytes);
+		spoolFile = Files.write(spoolDirectory.resolve("upload-1.bin"), imageBytes);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		server.shutdown();
+	}
+
+	@Test
+	void testUploadFromFile_SendsFileWithContentLength() throws Exception {
+		server.enqueue(uploadResponse());
+
+		ImgurClient.ImageMetadata metadata = imgurClient.uploadImage(spoolFile);
+
+		assertEquals("hash1", metadata.getDeleteHash());
+		RecordedRequest request = server.takeRequest();
+		// A known length is sent as Content-Length on the part and the request, not chunked
+		assertNull(request.getHeader("Transfer-Encoding"));
+		assertEquals(request.getBodySize(), Long.parseLong(request.getHeader("Content-Length")));
+		Buffer body = request.getBody();
+		assertTrue(body.indexOf(ByteString.encodeUtf8("Content-Length: " + IMAGE_SIZE)) >= 0);
+		assertTrue(body.indexOf(ByteString.of(imageBytes)) >= 0);
+	}
+
+	@Test
+	void testFileBody_ReadWhenSent() throws Exception {
+		StreamingRequestBody body = StreamingRequestBody.ofPath(spoolFile, IMAGE_SIZE);
+
+		// Creating the body reads nothing, so content written afterwards is what goes out
+		byte[] replaced = new byte[IMAGE_SIZE];
+		new Random(7).nextBytes(replaced);
+		Files.write(spoolFile, replaced);
+
+		Buffer sent = new Buffer();
+		body.writeTo(sent);
+		assertEquals(IMAGE_SIZE, body.contentLength());
+		assertEquals(ByteString.of(replaced), sent.readByteString());
+	}
+
+	@Test
+	void testUploadFromFile_AllocatesFarLessThanTheFile() throws Exception {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		server.enqueue(uploadResponse());
+		server.enqueue(uploadResponse());
+		// Warm up the connection and class loading outside the measurement
+		imgurClient.uploadImage(spoolFile);
+
+		// The request body is written on the calling thread; buffering it would allocate at least the file size
+		long before = threads.getCurrentThreadAllocatedBytes();
+		imgurClient.uploadImage(spoolFile);
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		assertTrue(allocated < IMAGE_SIZE / 4, "allocated " + allocated + " bytes");
+	}
+
+	private static MockResponse uploadResponse() {
+		return new MockResponse().setBody("{\"data\":{\"id\":\"id1\",\"deletehash\":\"hash1\",\"link\":\"https://i.imgur.com/id1.png\"}}");
+	}
+}
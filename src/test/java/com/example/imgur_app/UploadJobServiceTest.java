@@ -0,0 +1,267 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.UploadJob;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UploadJobRepository;
+import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.service.ImageDeduplicationService;
+import com.example.imgur_app.service.ImageProcessor;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurRateLimitException;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import com.example.imgur_app.service.UploadJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UploadJobServiceTest {
+
+	@TempDir
+	Path spoolDirectory;
+
+	private UploadJobRepository uploadJobRepository;
+	private ImageRepository imageRepository;
+	private ImgurClient imgurClient;
+	private ImageDeduplicationService deduplicationService;
+	private List<Runnable> dispatched;
+	private boolean rejectDispatch;
+	private UploadJobService uploadJobService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		uploadJobRepository = mock(UploadJobRepository.class);
+		imageRepository = mock(ImageRepository.class);
+		imgurClient = mock(ImgurClient.class);
+		deduplicationService = mock(ImageDeduplicationService.class);
+		ImageProcessor imageProcessor = mock(ImageProcessor.class);
+		// Jobs handed to the executor are collected so each test decides when they run
+		dispatched = new ArrayList<>();
+		Executor executor = task -> {
+			if (rejectDispatch) {
+				throw new RejectedExecutionException("Queue full");
+			}
+			dispatched.add(task);
+		};
+		uploadJobService = new UploadJobService(uploadJobRepository, mock(UserRepository.class), imageRepository,
+				imgurClient, deduplicationService, imageProcessor, executor, spoolDirectory.toString());
+
+		when(uploadJobRepository.save(any(UploadJob.class))).thenAnswer(invocation -> {
+			UploadJob job = invocation.getArgument(0);
+			if (job.getId() == null) {
+				job.setId(1L);
+			}
+			return job;
+		});
+		when(imageRepository.save(any(Image.class))).thenAnswer(invocation -> {
+			Image image = invocation.getArgument(0);
+			image.setId(50L);
+			return image;
+		});
+		when(deduplicationService.hash(any())).thenReturn("content-hash");
+		when(imageProcessor.process(any(), anyLong())).thenAnswer(invocation ->
+				ImageProcessor.ProcessedImage.unchanged(invocation.getArgument(0), invocation.<Long>getArgument(1)));
+	}
+
+	@Test
+	void testSubmit_SpoolsFileAndQueuesJob() throws Exception {
+		UploadJob job = uploadJobService.submit(
+				new MockMultipartFile("image", "a.png", "image/png", new byte[]{1, 2, 3}), 7L);
+
+		assertEquals(UploadJob.Status.QUEUED, job.getStatus());
+		assertEquals(7L, job.getUserId());
+		assertEquals("a.png", job.getOriginalFilename());
+		Path spoolFile = Path.of(job.getSpoolFile());
+		assertEquals(spoolDirectory.toAbsolutePath(), spoolFile.getParent());
+		assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(spoolFile));
+		verify(uploadJobRepository).save(job);
+		assertEquals(1, dispatched.size());
+	}
+
+	@Test
+	void testProcess_UploadsSpoolFileAndCompletesJob() throws Exception {
+		UploadJob job = queuedJob();
+		when(imgurClient.uploadImage(any(InputStream.class), eq(3L), eq(ImgurRateLimiter.Priority.BACKGROUND)))
+				.thenReturn(new ImgurClient.ImageMetadata("id1", "hash1", "https://i.imgur.com/id1.png", "client-a"));
+
+		runDispatched(job);
+
+		assertEquals(UploadJob.Status.COMPLETED, job.getStatus());
+		assertEquals(50L, job.getImageId());
+		verify(imageRepository).save(argThat(image -> image.getDeleteHash().equals("hash1")
+				&& "client-a".equals(image.getClientId()) && "content-hash".equals(image.getContentHash())));
+		assertFalse(Files.exists(Path.of(job.getSpoolFile())));
+	}
+
+	@Test
+	void testProcess_RecordsUploadOnJobBeforeSavingImage() throws Exception {
+		UploadJob job = queuedJob();
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong(), any()))
+				.thenReturn(new ImgurClient.ImageMetadata("id1", "hash1", "https://i.imgur.com/id1.png", "client-a"));
+		List<String> persistedDeleteHashes = new ArrayList<>();
+		when(uploadJobRepository.save(any(UploadJob.class))).thenAnswer(invocation -> {
+			persistedDeleteHashes.add(invocation.<UploadJob>getArgument(0).getImgurDeleteHash());
+			return invocation.getArgument(0);
+		});
+		when(imageRepository.save(any(Image.class))).thenThrow(new RuntimeException("Connection lost"));
+
+		runDispatched(job);
+
+		// The image row never made it, but the job already holds the upload for the next run
+		assertEquals(List.of("hash1", "hash1"), persistedDeleteHashes);
+		assertEquals("https://i.imgur.com/id1.png", job.getImgurLink());
+		assertEquals("client-a", job.getImgurClientId());
+	}
+
+	@Test
+	void testProcess_RerunReusesRecordedUpload() throws Exception {
+		UploadJob job = queuedJob();
+		job.setImgurDeleteHash("hash1");
+		job.setImgurLink("https://i.imgur.com/id1.png");
+		job.setImgurClientId("client-a");
+
+		runDispatched(job);
+
+		assertEquals(UploadJob.Status.COMPLETED, job.getStatus());
+		assertEquals(50L, job.getImageId());
+		verify(imageRepository).save(argThat(image -> image.getDeleteHash().equals("hash1")
+				&& "client-a".equals(image.getClientId()) && "https://i.imgur.com/id1.png".equals(image.getLink())));
+		verifyNoInteractions(imgurClient);
+	}
+
+	@Test
+	void testProcess_LostClaimLeavesJobAlone() throws Exception {
+		UploadJob job = queuedJob();
+		// Another worker moved the job out of QUEUED between the sweep and the claim
+		when(uploadJobRepository.transition(eq(1L), eq(UploadJob.Status.QUEUED), eq(UploadJob.Status.RUNNING), any()))
+				.thenReturn(0);
+
+		uploadJobService.dispatchQueuedJobs();
+		dispatched.remove(0).run();
+
+		assertEquals(UploadJob.Status.QUEUED, job.getStatus());
+		verify(uploadJobRepository, never()).findById(any());
+		verify(uploadJobRepository, never()).save(any(UploadJob.class));
+		verifyNoInteractions(imgurClient);
+		assertTrue(Files.exists(Path.of(job.getSpoolFile())));
+	}
+
+	@Test
+	void testProcess_DuplicateCompletesWithoutUpload() throws Exception {
+		UploadJob job = queuedJob();
+		when(deduplicationService.findDuplicate(7L, "content-hash", 3L))
+				.thenReturn(Optional.of(new ImageSummaryDTO(9L, "https://i.imgur.com/old.png", "oldHash")));
+
+		runDispatched(job);
+
+		assertEquals(UploadJob.Status.COMPLETED, job.getStatus());
+		assertEquals(9L, job.getImageId());
+		verifyNoInteractions(imgurClient);
+	}
+
+	@Test
+	void testProcess_RateLimitedJobIsRequeued() throws Exception {
+		UploadJob job = queuedJob();
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong(), any()))
+				.thenThrow(new ImgurRateLimitException("Imgur quota reserved for interactive requests"));
+
+		runDispatched(job);
+
+		// Nothing was sent, so the job goes back to the queue with its spool file for a later sweep
+		assertEquals(UploadJob.Status.QUEUED, job.getStatus());
+		assertNull(job.getErrorMessage());
+		assertTrue(Files.exists(Path.of(job.getSpoolFile())));
+
+		uploadJobService.dispatchQueuedJobs();
+		assertEquals(1, dispatched.size());
+	}
+
+	@Test
+	void testProcess_FailedUploadMarksJobFailed() throws Exception {
+		UploadJob job = queuedJob();
+		when(imgurClient.uploadImage(any(InputStream.class), anyLong(), any()))
+				.thenThrow(new Exception("Failed to upload image: Bad Request"));
+
+		runDispatched(job);
+
+		assertEquals(UploadJob.Status.FAILED, job.getStatus());
+		assertEquals("Failed to upload image: Bad Request", job.getErrorMessage());
+		assertFalse(Files.exists(Path.of(job.getSpoolFile())));
+	}
+
+	@Test
+	void testRecoverJobs_RequeuesInterruptedJobsAndDispatchesThem() throws Exception {
+		queuedJob();
+		when(uploadJobRepository.updateStatus(UploadJob.Status.RUNNING, UploadJob.Status.QUEUED)).thenReturn(1);
+
+		uploadJobService.recoverJobs();
+
+		verify(uploadJobRepository).updateStatus(UploadJob.Status.RUNNING, UploadJob.Status.QUEUED);
+		assertEquals(1, dispatched.size());
+	}
+
+	@Test
+	void testDispatchQueuedJobs_SkipsInFlightAndRetriesRejected() throws Exception {
+		queuedJob();
+
+		// A job still queued in the executor isn't dispatched a second time
+		uploadJobService.dispatchQueuedJobs();
+		uploadJobService.dispatchQueuedJobs();
+		assertEquals(1, dispatched.size());
+
+		// A rejected job stays QUEUED and the next sweep picks it up
+		dispatched.clear();
+		UploadJob rejected = new UploadJob();
+		rejected.setId(2L);
+		rejected.setStatus(UploadJob.Status.QUEUED);
+		when(uploadJobRepository.findTop100ByStatusOrderByIdAsc(UploadJob.Status.QUEUED)).thenReturn(List.of(rejected));
+		rejectDispatch = true;
+		uploadJobService.dispatchQueuedJobs();
+		assertTrue(dispatched.isEmpty());
+
+		rejectDispatch = false;
+		uploadJobService.dispatchQueuedJobs();
+		assertEquals(1, dispatched.size());
+	}
+
+	// A QUEUED job with a three byte spool file, returned by the repository lookups
+	private UploadJob queuedJob() throws Exception {
+		Path spoolFile = Files.write(spoolDirectory.resolve("upload-1.bin"), new byte[]{1, 2, 3});
+		UploadJob job = new UploadJob();
+		job.setId(1L);
+		job.setUserId(7L);
+		job.setSpoolFile(spoolFile.toString());
+		job.setStatus(UploadJob.Status.QUEUED);
+		when(uploadJobRepository.findById(1L)).thenReturn(Optional.of(job));
+		// The claim succeeds and the reload sees the job as RUNNING, like the conditional update would leave it
+		when(uploadJobRepository.transition(eq(1L), eq(UploadJob.Status.QUEUED), eq(UploadJob.Status.RUNNING), any()))
+				.thenAnswer(invocation -> {
+					job.setStatus(UploadJob.Status.RUNNING);
+					return 1;
+				});
+		when(uploadJobRepository.findTop100ByStatusOrderByIdAsc(UploadJob.Status.QUEUED)).thenReturn(List.of(job));
+		return job;
+	}
+
+	// Sweeps the job onto the executor and runs it
+	private void runDispatched(UploadJob job) {
+		uploadJobService.dispatchQueuedJobs();
+		assertEquals(1, dispatched.size());
+		dispatched.remove(0).run();
+		assertNotEquals(UploadJob.Status.RUNNING, job.getStatus());
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.imgur_app;
+
+import com.example.imgur_app.dto.ImageSummaryDTO;
+import com.example.imgur_app.entity.Image;
+import com.example.imgur_app.entity.User;
+import com.example.imgur_app.repository.ImageRepository;
+import com.example.imgur_app.repository.UserRepository;
+import com.example.imgur_app.service.ImgurClient;
+import com.example.imgur_app.service.ImgurRateLimiter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the blocking I/O path (ImgurClient over OkHttp, then ImageRepository and UserRepository over
+ * Hikari and H2) on many more virtual threads than there are carriers and database connections,
+ * and fails if JFR reports a virtual thread parking while pinned to its carrier. In-flight tasks are
+ * bounded by the Imgur bulkheads of the virtual-threads profile, so the test measures pinning rather
+ * than how far a small CI machine can be overloaded.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest
+@ActiveProfiles("virtual-threads")
+class VirtualThreadPinningTest {
+
+	private static final int TASKS = 200;
+	// Above the Hikari pool (20) and any carrier count, within the imgurDelete bulkhead (32)
+	private static final int IN_FLIGHT = 32;
+
+	private static MockWebServer imgur;
+
+	@Autowired
+	private ImgurClient imgurClient;
+
+	@Autowired
+	private ImageRepository imageRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeAll
+	static void startImgur() throws Exception {
+		imgur = new MockWebServer();
+		imgur.setDispatcher(new Dispatcher() {
+			private final AtomicLong ids = new AtomicLong();
+
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				// Slow enough that every call actually parks its virtual thread
+				MockResponse response = new MockResponse().setHeadersDelay(20, TimeUnit.MILLISECONDS);
+				if ("POST".equals(request.getMethod())) {
+					String id = Long.toString(ids.incrementAndGet());
+					return response.setBody("{\"data\":{\"id\":\"" + id + "\",\"deletehash\":\"del" + id
+							+ "\",\"link\":\"https://i.imgur.com/" + id + ".png\"}}");
+				}
+				return response.setBody("{\"success\":true}");
+			}
+		});
+		imgur.start();
+	}
+
+	@AfterAll
+	static void stopImgur() throws Exception {
+		imgur.shutdown();
+	}
+
+	@DynamicPropertySource
+	static void imgurProperties(DynamicPropertyRegistry registry) {
+		registry.add("imgur.base.url", () -> imgur.url("/3").toString());
+		registry.add("imgur.rate-limit.requests-per-second", () -> "100000");
+		registry.add("imgur.rate-limit.burst", () -> "100000");
+	}
+
+	@Test
+	void testBlockingIoPath_DoesNotPinCarrierThreads() throws Exception {
+		User user = new User();
+		user.setUsername("pinning-test");
+		user.setPassword("unused");
+		User owner = userRepository.save(user);
+
+		List<RecordedEvent> pinned;
+		Path dump = Files.createTempFile("pinning-", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+			recording.start();
+
+			// Executors.newVirtualThreadPerTaskExecutor() is Java 21 API; the build targets 17
+			ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			try {
+				Semaphore inFlight = new Semaphore(IN_FLIGHT);
+				List<Future<?>> tasks = new ArrayList<>();
+				for (int i = 0; i < TASKS; i++) {
+					tasks.add(executor.submit(() -> {
+						inFlight.acquire();
+						try {
+							ImgurClient.ImageMetadata metadata = imgurClient.uploadImage(new byte[1024]);
+							Image image = new Image();
+							image.setDeleteHash(metadata.getDeleteHash());
+							image.setLink(metadata.getLink());
+							image.setClientId(metadata.getClientId());
+							image.setUser(userRepository.getReferenceById(owner.getId()));
+							imageRepository.save(image);
+
+							ImageSummaryDTO summary = imageRepository.findSummaryByIdAndUserId(image.getId(), owner.getId()).orElseThrow();
+							userRepository.findByUsername("pinning-test").orElseThrow();
+							imgurClient.deleteImage(summary.getDeleteHash(), summary.getClientId(), ImgurRateLimiter.Priority.INTERACTIVE);
+							imageRepository.deleteById(image.getId());
+						} finally {
+							inFlight.release();
+						}
+						return null;
+					}));
+				}
+				for (Future<?> task : tasks) {
+					task.get(60, TimeUnit.SECONDS);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			recording.stop();
+			recording.dump(dump);
+			pinned = RecordingFile.readAllEvents(dump);
+		} finally {
+			Files.deleteIfExists(dump);
+		}
+
+		assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned parks, first at:\n" + pinned.get(0).getStackTrace().getFrames()
+				.stream()
+				.map(RecordedFrame::getMethod)
+				.map(method -> method.getType().getName() + "." + method.getName())
+				.collect(Collectors.joining("\n")));
+	}
+}